@@ -0,0 +1,44 @@
+package ca.concordia.benchmarks;
+
+import ca.concordia.util.TripCsvGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Trip CSVs for the benchmarks, generated once per generator format, size and seed into the temp
+ * directory and reused by later runs. The query parameters below always match trips of the generated season.
+ */
+final class BenchmarkData {
+    static final long SEED = TripCsvGenerator.DEFAULT_SEED;
+    static final TripCsvGenerator GENERATOR = new TripCsvGenerator(SEED);
+
+    static final String STATION = GENERATOR.getBusiestStationName();
+    static final String MONTH = GENERATOR.getYear() + "-06";
+    static final int MONTH_NUMBER = 6;
+    static final int OTHER_MONTH_NUMBER = 7;
+    static final String FIRST_DAY = GENERATOR.getYear() + "-06-01";
+    static final String LAST_DAY = GENERATOR.getYear() + "-06-30";
+    static final String INTERVAL_START = GENERATOR.getYear() + "-06-10 00:00:00";
+    static final String INTERVAL_END = GENERATOR.getYear() + "-06-16 23:59:59";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return a CSV of {@code rows} trips, written on first use
+     */
+    static synchronized Path csv(int rows) throws IOException {
+        Path path = Path.of(System.getProperty("java.io.tmpdir"),
+                "bixi-bench-v" + TripCsvGenerator.FORMAT_VERSION + "-" + rows + "-" + SEED + ".csv");
+        if (Files.isRegularFile(path) && Files.size(path) > 0) {
+            return path;
+        }
+        Path partial = Files.createTempFile(path.getParent(), "bixi-bench-", ".part");
+        GENERATOR.writeFile(partial, rows);
+        Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING);
+        return path;
+    }
+}
@@ -0,0 +1,80 @@
+package ca.concordia.benchmarks;
+
+import ca.concordia.controller.BixiController;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BixiController#loadFile} throughput. Besides loads per second, the {@code rows} and
+ * {@code bytes} counters report rows/s and bytes/s of the CSV loaded.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LoadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Source {
+        @Param({"10000", "100000", "1000000"})
+        public int rows;
+
+        /** Whether loads may open the snapshot the setup load writes next to the CSV. */
+        @Param({"false", "true"})
+        public boolean snapshot;
+
+        Path csv;
+        long bytes;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            System.setProperty(BixiController.SNAPSHOT_PROPERTY, Boolean.toString(snapshot));
+            csv = BenchmarkData.csv(rows);
+            bytes = Files.size(csv);
+            if (snapshot) {
+                System.setProperty(BixiController.SNAPSHOT_WRITE_PROPERTY, "true");
+                new BixiController().loadFile(csv.toString());
+                System.clearProperty(BixiController.SNAPSHOT_WRITE_PROPERTY);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        public long rows;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+            bytes = 0;
+        }
+    }
+
+    @Benchmark
+    public BixiController loadFile(Source source, Throughput throughput) {
+        BixiController controller = new BixiController();
+        controller.loadFile(source.csv.toString());
+        throughput.rows += controller.getTotalTripsLoaded();
+        throughput.bytes += source.bytes;
+        return controller;
+    }
+}
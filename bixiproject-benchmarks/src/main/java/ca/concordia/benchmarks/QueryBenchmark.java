@@ -0,0 +1,97 @@
+package ca.concordia.benchmarks;
+
+import ca.concordia.controller.BixiController;
+import ca.concordia.controller.IBixiController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Req.1 to Req.8 against a loaded controller. Trip results are iterated to the end, since
+ * implementations may return them lazily.
+ * <p>
+ * {@code controller} names the {@link IBixiController} implementation; any class with a
+ * no-argument constructor on the classpath can be compared against {@link BixiController}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dbixi.snapshot=false")
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"ca.concordia.controller.BixiController"})
+    public String controller;
+
+    private IBixiController bixi;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        bixi = (IBixiController) Class.forName(controller).getDeclaredConstructor().newInstance();
+        bixi.loadFile(BenchmarkData.csv(rows).toString());
+    }
+
+    @Benchmark
+    public int req1TripsByStation(Blackhole blackhole) {
+        return consume(bixi.getTripsByStation(BenchmarkData.STATION, "both"), blackhole);
+    }
+
+    @Benchmark
+    public int req2TripsByMonth(Blackhole blackhole) {
+        return consume(bixi.getTripsByMonth(BenchmarkData.MONTH), blackhole);
+    }
+
+    @Benchmark
+    public int req3TripsByDuration(Blackhole blackhole) {
+        return consume(bixi.getTripsByDuration(60f), blackhole);
+    }
+
+    @Benchmark
+    public int req4TripsByStartTime(Blackhole blackhole) {
+        return consume(bixi.getTripsByStartTime(BenchmarkData.INTERVAL_START, BenchmarkData.INTERVAL_END), blackhole);
+    }
+
+    @Benchmark
+    public int req5TopArrondissements(Blackhole blackhole) {
+        return consume(bixi.getTopArrondissements(5), blackhole);
+    }
+
+    @Benchmark
+    public int req6TopStations(Blackhole blackhole) {
+        return consume(bixi.getTopStations(10, BenchmarkData.FIRST_DAY, BenchmarkData.LAST_DAY), blackhole);
+    }
+
+    @Benchmark
+    public Object req7RushHour() {
+        return bixi.getRushHourOfMonth(BenchmarkData.MONTH_NUMBER);
+    }
+
+    @Benchmark
+    public Object req8CompareMonths() {
+        return bixi.compareMonths(BenchmarkData.MONTH_NUMBER, BenchmarkData.OTHER_MONTH_NUMBER, 10);
+    }
+
+    private static int consume(Iterable<?> results, Blackhole blackhole) {
+        int count = 0;
+        for (Object result : results) {
+            blackhole.consume(result);
+            count++;
+        }
+        return count;
+    }
+}
@@ -1,361 +1,573 @@
 package ca.concordia.controller;
 
+import ca.concordia.metrics.BixiMetrics;
 import ca.concordia.model.Arrondissement;
 import ca.concordia.model.BixiStation;
 import ca.concordia.model.BixiTrip;
+import ca.concordia.model.DurationPercentiles;
+import ca.concordia.model.FileLoadReport;
+import ca.concordia.model.RollupCube;
 import ca.concordia.model.RushHour;
 import ca.concordia.model.SimpleList;
 import ca.concordia.model.MonthComparison;
+import ca.concordia.model.MonthPartitions;
+import ca.concordia.model.StationDictionary;
+import ca.concordia.model.StationIndex;
+import ca.concordia.model.TimeIndex;
+import ca.concordia.model.TripDataset;
+import ca.concordia.model.TripSlice;
+import ca.concordia.model.TripSnapshot;
+import ca.concordia.model.TripStorage;
+import ca.concordia.model.TripStore;
+import ca.concordia.model.ZoneCalendar;
+import ca.concordia.util.ParallelAggregator;
+import ca.concordia.util.Sorts;
+import ca.concordia.util.TopK;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.time.Instant;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 public class BixiController implements IBixiController {
-    private SimpleList<BixiTrip> trips;
+    private static final Comparator<BixiStation> BY_STATION_NAME =
+            Comparator.comparing(BixiStation::getName, String.CASE_INSENSITIVE_ORDER);
+
+    public static final String SNAPSHOT_PROPERTY = "bixi.snapshot";
+    public static final String SNAPSHOT_WRITE_PROPERTY = "bixi.snapshot.write";
+    public static final String ZONE_PROPERTY = "bixi.zone";
+
+    private static final ExecutorService RELOADS = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bixi-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Replaced, never modified; each query reads it once and works on that version throughout.
+     * A replaced version is reclaimed by the garbage collector once the last query using it ends.
+     */
+    private volatile TripDataset dataset;
+    /** Set on controllers from {@link #pin()}, which only answer queries. */
+    private final boolean pinned;
+    private final Object writeLock = new Object();
+    private CsvTail tail;
+    private int tailTag;
+    private int nextFileTag;
+    private final ZoneId zone;
     private final DateTimeFormatter dateTimeFormatter;
+    private final CsvTripLoader loader;
+    private final ParallelAggregator aggregator;
 
     public BixiController() {
-        trips = new SimpleList<>();
+        this(new ParallelAggregator());
+    }
+
+    public BixiController(ParallelAggregator aggregator) {
+        this(aggregator, configuredZone());
+    }
+
+    /**
+     * @param zone the zone calendar fields (days, months, hours, date inputs) are computed in
+     */
+    public BixiController(ParallelAggregator aggregator, ZoneId zone) {
+        this.zone = zone;
+        dataset = TripDataset.empty(zone);
+        pinned = false;
+        this.aggregator = aggregator;
+        loader = new CsvTripLoader();
         dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     }
 
+    private BixiController(BixiController source, TripDataset version) {
+        zone = source.zone;
+        dataset = version;
+        pinned = true;
+        aggregator = source.aggregator;
+        loader = source.loader;
+        dateTimeFormatter = source.dateTimeFormatter;
+    }
+
+    /**
+     * @return a controller that answers every query from the trips loaded now, whatever is loaded
+     * here afterwards, so several queries can see one consistent version; it cannot load trips
+     */
+    public BixiController pin() {
+        return new BixiController(this, dataset);
+    }
+
+    /**
+     * Loads a trip CSV. Unless {@value #SNAPSHOT_PROPERTY} is {@code false}, a fresh snapshot next
+     * to the file is opened instead of parsing it. The snapshot is only written, after a parse, if
+     * {@value #SNAPSHOT_WRITE_PROPERTY} is {@code true}, or by {@link #saveSnapshot}. Snapshots
+     * that cannot be read or written are ignored.
+     */
     @Override
     public void loadFile(String filePath) {
-        clearTrips();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line = reader.readLine(); // header
-            if (line == null) {
-                return;
-            }
-            while ((line = reader.readLine()) != null) {
-                parseLine(line);
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to read file: " + filePath, e);
+        checkWritable();
+        synchronized (writeLock) {
+            load(filePath);
         }
     }
 
-    private void clearTrips() {
-        trips = new SimpleList<>();
+    /**
+     * Loads a trip CSV like {@link #loadFile} on a background thread. Queries keep seeing the
+     * previous trips until the new ones are fully indexed, then see only the new ones.
+     * @return completes with the published {@link #getDatasetVersion() version}, or exceptionally
+     * if the file cannot be read, in which case the previous trips stay loaded
+     */
+    public CompletableFuture<Long> loadFileAsync(String filePath) {
+        checkWritable();
+        return CompletableFuture.supplyAsync(() -> {
+            synchronized (writeLock) {
+                load(filePath);
+                return dataset.getVersion();
+            }
+        }, RELOADS);
     }
 
-    private void parseLine(String data) {
-        if (data == null || data.isBlank() || data.startsWith("STARTSTATIONNAME")) {
-            return;
-        }
-
-        String[] fields = data.split(",");
-        if (fields.length < 10) {
-            return;
+    /**
+     * Publishes the trips of a CSV or its snapshot once they are fully indexed; until then, and if
+     * reading fails, the previous trips stay visible.
+     */
+    private void load(String filePath) {
+        Path source = Path.of(filePath);
+        boolean useSnapshot = !"false".equalsIgnoreCase(System.getProperty(SNAPSHOT_PROPERTY));
+        Path snapshot = TripSnapshot.pathFor(source);
+        if (useSnapshot) {
+            try {
+                if (TripSnapshot.isFresh(snapshot, source)) {
+                    long startNs = System.nanoTime();
+                    TripDataset opened = TripSnapshot.open(snapshot, zone);
+                    FileLoadReport report = new FileLoadReport(nextFileTag++, filePath, opened.getTrips().size(), 0,
+                            Files.size(snapshot), System.nanoTime() - startNs);
+                    dataset = opened.withFiles(single(report));
+                    return;
+                }
+            } catch (IOException | RuntimeException e) {
+                // stale or damaged snapshot: fall back to the CSV
+            }
         }
 
-        try {
-            BixiTrip trip = new BixiTrip(
-                    fields[0].trim(),
-                    fields[1].trim(),
-                    Double.parseDouble(fields[2].trim()),
-                    Double.parseDouble(fields[3].trim()),
-                    fields[4].trim(),
-                    fields[5].trim(),
-                    Double.parseDouble(fields[6].trim()),
-                    Double.parseDouble(fields[7].trim()),
-                    Long.parseLong(fields[8].trim()),
-                    Long.parseLong(fields[9].trim())
-            );
-            trips.add(trip);
-        } catch (NumberFormatException ignored) {
+        CsvTripLoader.Result result = read(loader, source);
+        TripDataset built = indexed(() -> TripDataset.build(result.getTrips(), zone))
+                .withFiles(single(report(filePath, result)));
+        dataset = built;
+        if (useSnapshot && Boolean.getBoolean(SNAPSHOT_WRITE_PROPERTY)) {
+            try {
+                TripSnapshot.save(built, snapshot, source);
+            } catch (IOException e) {
+                // the snapshot is only a cache; the CSV stays authoritative
+            }
         }
     }
 
+    /**
+     * Loads several CSVs as one dataset, replacing the loaded trips. Files are parsed concurrently,
+     * at most one per available processor, and merged in the given order; each gets its own tag
+     * and load report. The previous trips stay visible until every file has been read.
+     */
     @Override
-    public Iterable<BixiTrip> getTripsByStation(String stationName, String mode) {
-        SimpleList<BixiTrip> results = new SimpleList<>();
-        String normalizedMode = mode == null ? "" : mode.trim().toLowerCase();
-
-        for (BixiTrip trip : trips) {
-            boolean add = false;
-            if ("start".equals(normalizedMode) || "both".equals(normalizedMode)) {
-                add = stationName.equalsIgnoreCase(trip.getStartStationName());
-            }
-            if (!add && ("end".equals(normalizedMode) || "both".equals(normalizedMode))) {
-                add = stationName.equalsIgnoreCase(trip.getEndStationName());
+    public void loadFiles(Collection<Path> files) {
+        checkWritable();
+        synchronized (writeLock) {
+            Path[] paths = files.toArray(new Path[0]);
+            if (paths.length == 0) {
+                dataset = TripDataset.empty(zone);
+                return;
             }
-            if (add) {
-                results.add(trip);
+            int processors = Runtime.getRuntime().availableProcessors();
+            int concurrent = Math.min(paths.length, processors);
+            CsvTripLoader fileLoader = new CsvTripLoader(Math.max(1, processors / concurrent));
+            ExecutorService executor = Executors.newFixedThreadPool(concurrent);
+            try {
+                SimpleList<Future<CsvTripLoader.Result>> futures = new SimpleList<>();
+                for (Path path : paths) {
+                    futures.add(executor.submit(() -> read(fileLoader, path)));
+                }
+                TripStore.Builder merged = new TripStore.Builder(1024, TripStorage.configured());
+                SimpleList<FileLoadReport> reports = new SimpleList<>();
+                for (int i = 0; i < paths.length; i++) {
+                    CsvTripLoader.Result result = futures.get(i).get();
+                    merged.append(result.getTrips());
+                    reports.add(report(paths[i].toString(), result));
+                }
+                TripStore trips = merged.build();
+                dataset = indexed(() -> TripDataset.build(trips, zone)).withFiles(reports);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while loading files", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw new RuntimeException("Failed to load files", e.getCause());
+            } finally {
+                executor.shutdownNow();
             }
         }
-        return results;
     }
 
+    /**
+     * Removes the trips of one loaded file. The other files' trips are re-indexed, not re-read.
+     */
     @Override
-    public Iterable<BixiTrip> getTripsByMonth(String month) {
-        SimpleList<BixiTrip> results = new SimpleList<>();
-        for (BixiTrip trip : trips) {
-            YearMonth ym = yearMonthFromMs(trip.getStartTimeMs());
-            if (month.equals(ym.toString())) {
-                results.add(trip);
+    public void unloadFile(int fileTag) {
+        checkWritable();
+        synchronized (writeLock) {
+            if (tail != null && tailTag == fileTag) {
+                stopTail();
             }
+            TripDataset data = dataset;
+            dataset = indexed(() -> data.without(fileTag));
         }
-        sortTripsByStartTime(results, true);
-        return results;
     }
 
     @Override
-    public Iterable<BixiTrip> getTripsByDuration(float minDuration) {
-        SimpleList<BixiTrip> results = new SimpleList<>();
-        for (BixiTrip trip : trips) {
-            if (trip.getDurationMinutes() > minDuration) {
-                results.add(trip);
-            }
-        }
-        sortTripsByDuration(results, false);
-        return results;
+    public Iterable<FileLoadReport> getLoadReports() {
+        return dataset.getFiles();
     }
 
-    @Override
-    public Iterable<BixiTrip> getTripsByStartTime(String startTime, String finalTime) {
-        long startMs = toEpochMs(startTime);
-        long endMs = toEpochMs(finalTime);
-
-        SimpleList<BixiTrip> results = new SimpleList<>();
-        for (BixiTrip trip : trips) {
-            long t = trip.getStartTimeMs();
-            if (t >= startMs && t <= endMs) {
-                results.add(trip);
-            }
+    /**
+     * Writes the loaded trips and their indexes to a binary snapshot that {@link #loadSnapshot} can reopen.
+     */
+    public void saveSnapshot(String snapshotPath) {
+        try {
+            TripSnapshot.save(dataset, Path.of(snapshotPath), null);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write snapshot: " + snapshotPath, e);
         }
-
-        sortTripsByStartTime(results, true);
-        return results;
     }
 
-    @Override
-    public Iterable<Arrondissement> getTopArrondissements(int k) {
-        SimpleList<Arrondissement> counts = new SimpleList<>();
-
-        for (BixiTrip trip : trips) {
-            String name = trip.getStartStationArrondissement();
-            int idx = findArrondissementIndex(counts, name);
-            if (idx == -1) {
-                counts.add(new Arrondissement(name, 1));
-            } else {
-                Arrondissement a = counts.get(idx);
-                a.setDepartures(a.getDepartures() + 1);
+    public void loadSnapshot(String snapshotPath) {
+        checkWritable();
+        synchronized (writeLock) {
+            try {
+                dataset = TripSnapshot.open(Path.of(snapshotPath), zone);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read snapshot: " + snapshotPath, e);
             }
         }
+    }
 
-        sortArrondissements(counts);
-        return firstKArrondissements(counts, k);
+    /**
+     * Adds the trips of another CSV to the loaded ones without reloading them. Queries already
+     * running keep seeing the trips as they were before the call.
+     */
+    public void appendFile(String filePath) {
+        checkWritable();
+        CsvTripLoader.Result result = read(loader, Path.of(filePath));
+        synchronized (writeLock) {
+            FileLoadReport report = report(filePath, result);
+            TripDataset data = dataset;
+            dataset = indexed(() -> data.append(result.getTrips(), report));
+        }
     }
 
-    @Override
-    public Iterable<BixiStation> getTopStations(int k, String startDate, String endDate) {
-        long startMs = toEpochMs(startDate);
-        long endMs = toEpochMs(endDate);
+    /**
+     * Appends the current contents of a CSV, then keeps appending the lines written to it until
+     * {@link #stopTail()} is called. Replaces any file already being followed. Everything read
+     * from the file shares one tag; if the file shrinks, the trips under that tag are unloaded
+     * before it is read again.
+     */
+    public void tailFile(String filePath) {
+        checkWritable();
+        synchronized (writeLock) {
+            stopTail();
+            int tag = nextFileTag++;
+            tail = new CsvTail(Path.of(filePath), loader, result -> {
+                synchronized (writeLock) {
+                    // a batch read before this tail was stopped or its trips unloaded is dropped
+                    if (!isTailing(tag)) {
+                        return;
+                    }
+                    FileLoadReport report = report(tag, filePath, result);
+                    TripDataset data = dataset;
+                    dataset = indexed(() -> data.append(result.getTrips(), report));
+                }
+            }, () -> {
+                synchronized (writeLock) {
+                    if (isTailing(tag)) {
+                        TripDataset data = dataset;
+                        dataset = indexed(() -> data.without(tag));
+                    }
+                }
+            });
+            tailTag = tag;
+            tail.start();
+        }
+    }
 
-        SimpleList<BixiStation> counts = new SimpleList<>();
+    private boolean isTailing(int tag) {
+        return tail != null && !tail.isClosed() && tailTag == tag;
+    }
 
-        for (BixiTrip trip : trips) {
-            if (trip.getStartTimeMs() < startMs || trip.getStartTimeMs() > endMs) {
-                continue;
-            }
-            String station = trip.getStartStationName();
-            int idx = findStationIndex(counts, station);
-            if (idx == -1) {
-                counts.add(new BixiStation(station, 1));
-            } else {
-                BixiStation s = counts.get(idx);
-                s.setTripCount(s.getTripCount() + 1);
+    public void stopTail() {
+        synchronized (writeLock) {
+            if (tail != null) {
+                tail.close();
+                tail = null;
             }
         }
+    }
 
-        sortStationsByCountDesc(counts);
-        SimpleList<BixiStation> top = firstKStations(counts, k);
-        sortStationsAlphabetical(top);
-        return top;
+    private void checkWritable() {
+        if (pinned) {
+            throw new UnsupportedOperationException("Pinned to dataset version " + dataset.getVersion());
+        }
     }
 
-    @Override
-    public RushHour getRushHourOfMonth(int month) {
-        int[] hourlyCounts = new int[24];
-        int[] uniqueDays = new int[4096];
-        int dayCount = 0;
-
-        for (BixiTrip trip : trips) {
-            LocalDateTime dt = dateTimeFromMs(trip.getStartTimeMs());
-            if (dt.getMonthValue() != month) {
-                continue;
-            }
+    /**
+     * @return the zone named by {@value #ZONE_PROPERTY}, or the system default zone
+     */
+    private static ZoneId configuredZone() {
+        String id = System.getProperty(ZONE_PROPERTY);
+        return id == null || id.isBlank() ? ZoneId.systemDefault() : ZoneId.of(id.trim());
+    }
 
-            hourlyCounts[dt.getHour()]++;
+    private static CsvTripLoader.Result read(CsvTripLoader loader, Path path) {
+        try {
+            return loader.read(path, 0, Long.MAX_VALUE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read file: " + path, e);
+        }
+    }
 
-            int dayKey = dt.getYear() * 10000 + dt.getMonthValue() * 100 + dt.getDayOfMonth();
-            if (!contains(uniqueDays, dayCount, dayKey)) {
-                uniqueDays[dayCount++] = dayKey;
-            }
+    private FileLoadReport report(String path, CsvTripLoader.Result result) {
+        synchronized (writeLock) {
+            return report(nextFileTag++, path, result);
         }
+    }
 
-        if (dayCount == 0) {
-            return new RushHour(-1, 0.0);
+    private static FileLoadReport report(int tag, String path, CsvTripLoader.Result result) {
+        if (BixiMetrics.ENABLED) {
+            BixiMetrics.loader().recordParse(result.getBytes(), result.getTrips().size(), result.getShortRows(),
+                    result.getMalformedRows(), result.getElapsedNanos());
         }
+        return new FileLoadReport(tag, path, result.getTrips().size(), result.getRejectedRows(), result.getBytes(),
+                result.getElapsedNanos());
+    }
 
-        int bestHour = 0;
-        double bestAvg = -1;
-        for (int hour = 0; hour < 24; hour++) {
-            double avg = (double) hourlyCounts[hour] / dayCount;
-            if (avg > bestAvg) {
-                bestAvg = avg;
-                bestHour = hour;
-            }
+    /**
+     * @return the dataset {@code build} creates, recording how long indexing took
+     */
+    private static TripDataset indexed(Supplier<TripDataset> build) {
+        if (!BixiMetrics.ENABLED) {
+            return build.get();
         }
+        long startNs = System.nanoTime();
+        TripDataset built = build.get();
+        BixiMetrics.loader().recordIndexBuild(System.nanoTime() - startNs);
+        return built;
+    }
 
-        return new RushHour(bestHour, bestAvg);
+    private static SimpleList<FileLoadReport> single(FileLoadReport report) {
+        SimpleList<FileLoadReport> reports = new SimpleList<>();
+        reports.add(report);
+        return reports;
     }
 
-    private int findArrondissementIndex(SimpleList<Arrondissement> arrondissements, String name) {
-        for (int i = 0; i < arrondissements.size(); i++) {
-            if (arrondissements.get(i).getName().equalsIgnoreCase(name)) {
-                return i;
-            }
-        }
-        return -1;
+    @Override
+    public long getDatasetVersion() {
+        return dataset.getVersion();
     }
 
-    private int findStationIndex(SimpleList<BixiStation> stations, String name) {
-        for (int i = 0; i < stations.size(); i++) {
-            if (stations.get(i).getName().equalsIgnoreCase(name)) {
-                return i;
-            }
-        }
-        return -1;
+    @Override
+    public int getTotalTripsLoaded() {
+        return dataset.getTrips().size();
     }
 
-    private void sortTripsByStartTime(SimpleList<BixiTrip> list, boolean ascending) {
-        for (int i = 0; i < list.size(); i++) {
-            for (int j = 0; j < list.size() - 1 - i; j++) {
-                BixiTrip a = list.get(j);
-                BixiTrip b = list.get(j + 1);
-                boolean shouldSwap = ascending ? a.getStartTimeMs() > b.getStartTimeMs() : a.getStartTimeMs() < b.getStartTimeMs();
-                if (shouldSwap) {
-                    swapTrips(list, j, j + 1);
-                }
-            }
-        }
+    @Override
+    public int getUniqueStationsLoaded() {
+        return dataset.getTrips().getDictionary().getStationCount();
     }
 
-    private void sortTripsByDuration(SimpleList<BixiTrip> list, boolean ascending) {
-        for (int i = 0; i < list.size(); i++) {
-            for (int j = 0; j < list.size() - 1 - i; j++) {
-                double da = list.get(j).getDurationMinutes();
-                double db = list.get(j + 1).getDurationMinutes();
-                boolean shouldSwap = ascending ? da > db : da < db;
-                if (shouldSwap) {
-                    swapTrips(list, j, j + 1);
-                }
-            }
+    @Override
+    public Iterable<BixiTrip> getTripsByStation(String stationName, String mode) {
+        String normalizedMode = mode == null ? "" : mode.trim().toLowerCase();
+        boolean matchStart = "start".equals(normalizedMode) || "both".equals(normalizedMode);
+        boolean matchEnd = "end".equals(normalizedMode) || "both".equals(normalizedMode);
+
+        TripDataset data = dataset;
+        TripStore trips = data.getTrips();
+        StationIndex stationIndex = data.getStationIndex();
+        int stationId = trips.getDictionary().findStation(stationName);
+        if (stationId == -1 || (!matchStart && !matchEnd)) {
+            return data.getTimeIndex().slice(0, 0);
+        }
+
+        int[] ordinals;
+        if (matchStart && matchEnd) {
+            ordinals = stationIndex.tripsAt(stationId);
+        } else if (matchStart) {
+            ordinals = stationIndex.tripsStartingAt(stationId);
+        } else {
+            ordinals = stationIndex.tripsEndingAt(stationId);
         }
+        BixiMetrics.addRowsScanned(ordinals.length);
+        return new TripSlice(trips, ordinals, 0, ordinals.length);
     }
 
-    private void swapTrips(SimpleList<BixiTrip> list, int i, int j) {
-        BixiTrip left = list.get(i);
-        BixiTrip right = list.get(j);
-        list.rawArray()[i] = right;
-        list.rawArray()[j] = left;
+    @Override
+    public Iterable<BixiTrip> getTripsByMonth(String month) {
+        TripDataset data = dataset;
+        YearMonth ym = parseMonth(month);
+        TripSlice trips = ym == null ? data.getTimeIndex().slice(0, 0) : data.getPartitions().month(ym);
+        BixiMetrics.addRowsScanned(trips.size());
+        return trips;
     }
 
-    private void sortArrondissements(SimpleList<Arrondissement> list) {
-        for (int i = 0; i < list.size(); i++) {
-            for (int j = 0; j < list.size() - 1 - i; j++) {
-                Arrondissement a = list.get(j);
-                Arrondissement b = list.get(j + 1);
-                boolean shouldSwap = a.getDepartures() < b.getDepartures()
-                        || (a.getDepartures() == b.getDepartures() && a.getName().compareToIgnoreCase(b.getName()) > 0);
-                if (shouldSwap) {
-                    list.rawArray()[j] = b;
-                    list.rawArray()[j + 1] = a;
-                }
-            }
+    /**
+     * @return the month of a strict "YYYY-MM" string, or null
+     */
+    private static YearMonth parseMonth(String month) {
+        try {
+            YearMonth ym = YearMonth.parse(month);
+            return month.equals(ym.toString()) ? ym : null;
+        } catch (DateTimeParseException e) {
+            return null;
         }
     }
 
-    private void sortStationsByCountDesc(SimpleList<BixiStation> list) {
-        for (int i = 0; i < list.size(); i++) {
-            for (int j = 0; j < list.size() - 1 - i; j++) {
-                BixiStation a = list.get(j);
-                BixiStation b = list.get(j + 1);
-                boolean shouldSwap = a.getTripCount() < b.getTripCount()
-                        || (a.getTripCount() == b.getTripCount() && a.getName().compareToIgnoreCase(b.getName()) > 0);
-                if (shouldSwap) {
-                    list.rawArray()[j] = b;
-                    list.rawArray()[j + 1] = a;
-                }
-            }
-        }
+    @Override
+    public Iterable<BixiTrip> getTripsByDuration(float minDuration) {
+        TripSlice trips = dataset.getDurationIndex().longerThan(minDuration);
+        BixiMetrics.addRowsScanned(trips.size());
+        return trips;
     }
 
-    private void sortStationsAlphabetical(SimpleList<BixiStation> list) {
-        for (int i = 0; i < list.size(); i++) {
-            for (int j = 0; j < list.size() - 1 - i; j++) {
-                BixiStation a = list.get(j);
-                BixiStation b = list.get(j + 1);
-                if (a.getName().compareToIgnoreCase(b.getName()) > 0) {
-                    list.rawArray()[j] = b;
-                    list.rawArray()[j + 1] = a;
-                }
-            }
-        }
+    @Override
+    public DurationPercentiles getDurationPercentilesByStation(String stationName) {
+        TripDataset data = dataset;
+        return data.getDurationIndex().stationPercentiles(data.getTrips().getDictionary().findStation(stationName));
+    }
+
+    @Override
+    public DurationPercentiles getDurationPercentilesByMonth(String month) {
+        TripDataset data = dataset;
+        YearMonth ym = parseMonth(month);
+        return ym == null ? new DurationPercentiles(0, -1, -1, -1) : data.getDurationIndex().monthPercentiles(ym);
     }
 
-    private SimpleList<Arrondissement> firstKArrondissements(SimpleList<Arrondissement> list, int k) {
+    @Override
+    public Iterable<BixiTrip> getTripsByStartTime(String startTime, String finalTime) {
+        TripDataset data = dataset;
+        long startMs = toEpochMs(data.getCalendar(), startTime);
+        long endMs = toEpochMs(data.getCalendar(), finalTime);
+        TripSlice trips = data.getPartitions().between(startMs, endMs);
+        BixiMetrics.addRowsScanned(trips.size());
+        return trips;
+    }
+
+    @Override
+    public Iterable<Arrondissement> getTopArrondissements(int k) {
+        TripStore store = dataset.getTrips();
+        StationDictionary dictionary = store.getDictionary();
+        int arrondissements = dictionary.getArrondissementCount();
+        int[] departures = aggregator.aggregate(0, store.size(), () -> new int[arrondissements],
+                (counts, from, to) -> {
+                    for (int i = from; i < to; i++) {
+                        counts[store.getStartArrondissementId(i)]++;
+                    }
+                },
+                ParallelAggregator::sum);
+        BixiMetrics.addRowsScanned(store.size());
+
+        int[] winners = TopK.select(departures, k, (a, b) ->
+                dictionary.getArrondissementName(a).compareToIgnoreCase(dictionary.getArrondissementName(b)));
         SimpleList<Arrondissement> top = new SimpleList<>();
-        int limit = Math.min(k, list.size());
-        for (int i = 0; i < limit; i++) {
-            top.add(list.get(i));
+        for (int id : winners) {
+            top.add(new Arrondissement(dictionary.getArrondissementName(id), departures[id]));
         }
         return top;
     }
 
-    private SimpleList<BixiStation> firstKStations(SimpleList<BixiStation> list, int k) {
-        SimpleList<BixiStation> top = new SimpleList<>();
-        int limit = Math.min(k, list.size());
-        for (int i = 0; i < limit; i++) {
-            top.add(list.get(i));
-        }
+    @Override
+    public Iterable<BixiStation> getTopStations(int k, String startDate, String endDate) {
+        TripDataset data = dataset;
+        long startMs = toEpochMs(data.getCalendar(), startDate);
+        long endMs = toEpochMs(data.getCalendar(), endDate);
+
+        int[] departures = countDepartures(data, startMs, endMs);
+        SimpleList<BixiStation> top = MonthComparisonEngine.topStations(data.getTrips().getDictionary(), departures, k);
+        Sorts.sort(top, BY_STATION_NAME);
         return top;
     }
 
-    private YearMonth yearMonthFromMs(long timeMs) {
-        LocalDateTime dt = dateTimeFromMs(timeMs);
-        return YearMonth.of(dt.getYear(), dt.getMonthValue());
+    @Override
+    public RushHour getRushHourOfMonth(int month) {
+        return monthEngine().rushHour(month);
+    }
+
+    @Override
+    public MonthComparison compareMonths(int month1, int month2, int k) {
+        MonthComparison.MonthStats[] stats = monthEngine().compare(k, month1, month2);
+        return new MonthComparison(stats[0], stats[1]);
     }
 
-    private LocalDateTime dateTimeFromMs(long timeMs) {
-        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timeMs), ZoneId.systemDefault());
+    /**
+     * Counts departures per station for trips starting in {@code [startMs, endMs]}. Whole days
+     * come from the rollup cube; only the partial days at either edge are read from the trips.
+     */
+    private int[] countDepartures(TripDataset data, long startMs, long endMs) {
+        RollupCube rollup = data.getCube();
+        int stations = data.getTrips().getDictionary().getStationCount();
+        int fromDay = rollup.firstDayStartingAtOrAfter(startMs);
+        int toDay = rollup.firstDayStartingAtOrAfter(endMs + 2) - 1;
+        if (fromDay >= toDay) {
+            return countDeparturesByTrip(data, startMs, endMs);
+        }
+        int[] departures = aggregator.aggregate(fromDay, toDay, () -> new int[stations],
+                (counts, from, to) -> rollup.addStationCounts(from, to, counts, null),
+                ParallelAggregator::sum);
+        ParallelAggregator.sum(departures, countDeparturesByTrip(data, startMs, rollup.getDayStartMs(fromDay) - 1));
+        ParallelAggregator.sum(departures, countDeparturesByTrip(data, rollup.getDayStartMs(toDay), endMs));
+        return departures;
     }
 
-    private long toEpochMs(String input) {
+    private int[] countDeparturesByTrip(TripDataset data, long startMs, long endMs) {
+        MonthPartitions partitions = data.getPartitions();
+        TripStore trips = data.getTrips();
+        TimeIndex timeIndex = data.getTimeIndex();
+        int stations = trips.getDictionary().getStationCount();
+        int first = partitions.lowerBound(startMs);
+        int end = partitions.upperBound(endMs);
+        BixiMetrics.addRowsScanned(Math.max(0, end - first));
+        return aggregator.aggregate(first, end, () -> new int[stations],
+                (counts, from, to) -> {
+                    for (int position = from; position < to; position++) {
+                        counts[trips.getStartStationId(timeIndex.tripAt(position))]++;
+                    }
+                },
+                ParallelAggregator::sum);
+    }
+
+    private MonthComparisonEngine monthEngine() {
+        TripDataset data = dataset;
+        return new MonthComparisonEngine(data.getCube(), data.getTrips().getDictionary(), aggregator);
+    }
+
+    private long toEpochMs(ZoneCalendar calendar, String input) {
         String trimmed = input.trim();
         if (trimmed.length() == 10) {
             LocalDate date = LocalDate.parse(trimmed);
-            return date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            return calendar.startOfDayMs(date.toEpochDay());
         }
         LocalDateTime dateTime = LocalDateTime.parse(trimmed, dateTimeFormatter);
-        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
-    }
-
-    private boolean contains(int[] values, int size, int target) {
-        for (int i = 0; i < size; i++) {
-            if (values[i] == target) {
-                return true;
-            }
-        }
-        return false;
+        return calendar.toEpochMs(dateTime.toLocalDate().toEpochDay() * ZoneCalendar.DAY_MS
+                + dateTime.toLocalTime().toNanoOfDay() / 1_000_000);
     }
 }
@@ -0,0 +1,376 @@
+package ca.concordia.controller;
+
+import ca.concordia.model.Arrondissement;
+import ca.concordia.model.BixiStation;
+import ca.concordia.model.BixiTrip;
+import ca.concordia.model.DurationPercentiles;
+import ca.concordia.model.FileLoadReport;
+import ca.concordia.model.MonthComparison;
+import ca.concordia.model.RushHour;
+import ca.concordia.model.SimpleList;
+import ca.concordia.model.TripSlice;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Caches query results of another controller, keyed by method and normalized arguments.
+ * <p>
+ * Entries are weighed by an estimate of the memory their result holds, and the least recently
+ * used entries are evicted once the total passes {@value #MAX_BYTES_PROPERTY} bytes. Every entry
+ * belongs to one dataset version: when the delegate's version changes, whether through this
+ * controller or not, the cache is emptied on the next query. Results computed while the version
+ * changed are returned but not kept.
+ */
+public class CachingBixiController implements IBixiController {
+    public static final String MAX_BYTES_PROPERTY = "bixi.cache.bytes";
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    /** Rough cost of an entry and its key, and of one result element beyond its reference. */
+    private static final long ENTRY_BYTES = 128;
+    private static final long ELEMENT_BYTES = 32;
+    private static final long TRIP_BYTES = 80;
+
+    private final IBixiController delegate;
+    private final long maxBytes;
+
+    private Entry[] table = new Entry[64];
+    /** Most recently used entry; {@code head.older} leads to the least recently used one. */
+    private Entry head;
+    private Entry tail;
+    private int entryCount;
+    private long weightBytes;
+    private long version;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public CachingBixiController(IBixiController delegate) {
+        this(delegate, Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES));
+    }
+
+    public CachingBixiController(IBixiController delegate, long maxBytes) {
+        this.delegate = delegate;
+        this.maxBytes = Math.max(0, maxBytes);
+        this.version = delegate.getDatasetVersion();
+    }
+
+    public IBixiController getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void loadFile(String filePath) {
+        delegate.loadFile(filePath);
+        invalidate();
+    }
+
+    @Override
+    public void loadFiles(Collection<Path> files) {
+        delegate.loadFiles(files);
+        invalidate();
+    }
+
+    @Override
+    public void loadDirectory(Path directory, String glob) {
+        delegate.loadDirectory(directory, glob);
+        invalidate();
+    }
+
+    @Override
+    public void unloadFile(int fileTag) {
+        delegate.unloadFile(fileTag);
+        invalidate();
+    }
+
+    @Override
+    public Iterable<FileLoadReport> getLoadReports() {
+        return delegate.getLoadReports();
+    }
+
+    @Override
+    public long getDatasetVersion() {
+        return delegate.getDatasetVersion();
+    }
+
+    @Override
+    public int getTotalTripsLoaded() {
+        return delegate.getTotalTripsLoaded();
+    }
+
+    @Override
+    public int getUniqueStationsLoaded() {
+        return delegate.getUniqueStationsLoaded();
+    }
+
+    @Override
+    public Iterable<BixiTrip> getTripsByStation(String stationName, String mode) {
+        String normalizedMode = mode == null ? "" : mode.trim().toLowerCase();
+        return cached(key("station", fold(stationName), normalizedMode),
+                () -> delegate.getTripsByStation(stationName, mode));
+    }
+
+    @Override
+    public Iterable<BixiTrip> getTripsByMonth(String month) {
+        return cached(key("month", String.valueOf(month)), () -> delegate.getTripsByMonth(month));
+    }
+
+    @Override
+    public Iterable<BixiTrip> getTripsByDuration(float minDuration) {
+        return cached(key("duration", Integer.toString(Float.floatToIntBits(minDuration))),
+                () -> delegate.getTripsByDuration(minDuration));
+    }
+
+    @Override
+    public DurationPercentiles getDurationPercentilesByStation(String stationName) {
+        return cached(key("stationDurations", fold(stationName)),
+                () -> delegate.getDurationPercentilesByStation(stationName));
+    }
+
+    @Override
+    public DurationPercentiles getDurationPercentilesByMonth(String month) {
+        return cached(key("monthDurations", String.valueOf(month)), () -> delegate.getDurationPercentilesByMonth(month));
+    }
+
+    @Override
+    public Iterable<BixiTrip> getTripsByStartTime(String startTime, String finalTime) {
+        return cached(key("startTime", startTime.trim(), finalTime.trim()),
+                () -> delegate.getTripsByStartTime(startTime, finalTime));
+    }
+
+    @Override
+    public Iterable<Arrondissement> getTopArrondissements(int k) {
+        return cached(key("topArrondissements", Integer.toString(k)), () -> delegate.getTopArrondissements(k));
+    }
+
+    @Override
+    public Iterable<BixiStation> getTopStations(int k, String startDate, String endDate) {
+        return cached(key("topStations", Integer.toString(k), startDate.trim(), endDate.trim()),
+                () -> delegate.getTopStations(k, startDate, endDate));
+    }
+
+    @Override
+    public RushHour getRushHourOfMonth(int month) {
+        return cached(key("rushHour", Integer.toString(month)), () -> delegate.getRushHourOfMonth(month));
+    }
+
+    @Override
+    public MonthComparison compareMonths(int month1, int month2, int k) {
+        return cached(key("compareMonths", Integer.toString(month1), Integer.toString(month2), Integer.toString(k)),
+                () -> delegate.compareMonths(month1, month2, k));
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return entries dropped to stay under the size limit; entries dropped because the dataset
+     * changed are not counted
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int getEntryCount() {
+        return entryCount;
+    }
+
+    public synchronized long getWeightBytes() {
+        return weightBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Drops every entry.
+     */
+    public synchronized void invalidate() {
+        table = new Entry[64];
+        head = null;
+        tail = null;
+        entryCount = 0;
+        weightBytes = 0;
+        version = delegate.getDatasetVersion();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String key, Supplier<T> query) {
+        long queryVersion = delegate.getDatasetVersion();
+        synchronized (this) {
+            if (queryVersion != version) {
+                invalidate();
+            }
+            Entry entry = find(key);
+            if (entry != null) {
+                hits++;
+                unlink(entry);
+                linkFirst(entry);
+                return (T) entry.value;
+            }
+            misses++;
+        }
+
+        T result = query.get();
+        long weight = ENTRY_BYTES + 2L * key.length() + weigh(result);
+        synchronized (this) {
+            if (weight <= maxBytes && version == queryVersion && delegate.getDatasetVersion() == queryVersion
+                    && find(key) == null) {
+                insert(new Entry(key, result, weight));
+                while (weightBytes > maxBytes) {
+                    remove(tail);
+                    evictions++;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return an estimate of the bytes {@code result} keeps reachable besides the trip store
+     */
+    private static long weigh(Object result) {
+        if (result instanceof TripSlice slice) {
+            return 4L * slice.size();
+        }
+        if (result instanceof MonthComparison comparison) {
+            return weigh(comparison.getFirstMonth()) + weigh(comparison.getSecondMonth());
+        }
+        if (result instanceof MonthComparison.MonthStats stats) {
+            return ELEMENT_BYTES * 2 + weigh(stats.getTopStartStations()) + weigh(stats.getTopEndStations());
+        }
+        if (result instanceof Iterable<?> iterable) {
+            long bytes = 0;
+            for (Object element : iterable) {
+                bytes += 8 + (element instanceof BixiTrip ? TRIP_BYTES : ELEMENT_BYTES);
+            }
+            return bytes;
+        }
+        return ELEMENT_BYTES;
+    }
+
+    private static String key(String method, String... arguments) {
+        StringBuilder key = new StringBuilder(method);
+        for (String argument : arguments) {
+            key.append('\u0000').append(argument);
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return {@code name} with every character folded the way {@link String#equalsIgnoreCase} compares them
+     */
+    private static String fold(String name) {
+        if (name == null) {
+            return "\u0000null";
+        }
+        char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    private Entry find(String key) {
+        int hash = key.hashCode();
+        for (Entry entry = table[hash & (table.length - 1)]; entry != null; entry = entry.bucketNext) {
+            if (entry.hash == hash && entry.key.equals(key)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private void insert(Entry entry) {
+        if (entryCount + 1 > table.length * 3 / 4) {
+            rehash();
+        }
+        int bucket = entry.hash & (table.length - 1);
+        entry.bucketNext = table[bucket];
+        table[bucket] = entry;
+        linkFirst(entry);
+        entryCount++;
+        weightBytes += entry.weight;
+    }
+
+    private void remove(Entry entry) {
+        int bucket = entry.hash & (table.length - 1);
+        if (table[bucket] == entry) {
+            table[bucket] = entry.bucketNext;
+        } else {
+            Entry previous = table[bucket];
+            while (previous.bucketNext != entry) {
+                previous = previous.bucketNext;
+            }
+            previous.bucketNext = entry.bucketNext;
+        }
+        unlink(entry);
+        entryCount--;
+        weightBytes -= entry.weight;
+    }
+
+    private void rehash() {
+        Entry[] next = new Entry[table.length * 2];
+        for (Entry bucket : table) {
+            for (Entry entry = bucket; entry != null; ) {
+                Entry following = entry.bucketNext;
+                int index = entry.hash & (next.length - 1);
+                entry.bucketNext = next[index];
+                next[index] = entry;
+                entry = following;
+            }
+        }
+        table = next;
+    }
+
+    private void linkFirst(Entry entry) {
+        entry.newer = null;
+        entry.older = head;
+        if (head != null) {
+            head.newer = entry;
+        }
+        head = entry;
+        if (tail == null) {
+            tail = entry;
+        }
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.newer == null) {
+            head = entry.older;
+        } else {
+            entry.newer.older = entry.older;
+        }
+        if (entry.older == null) {
+            tail = entry.newer;
+        } else {
+            entry.older.newer = entry.newer;
+        }
+        entry.newer = null;
+        entry.older = null;
+    }
+
+    private static final class Entry {
+        final String key;
+        final int hash;
+        final Object value;
+        final long weight;
+        Entry bucketNext;
+        Entry newer;
+        Entry older;
+
+        Entry(String key, Object value, long weight) {
+            this.key = key;
+            this.hash = key.hashCode();
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
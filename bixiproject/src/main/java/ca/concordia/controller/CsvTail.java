@@ -0,0 +1,136 @@
+package ca.concordia.controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Follows a growing trip CSV: whenever the file changes, the complete lines written since the
+ * last read are parsed and handed to a consumer. A partial last line waits for its newline. If
+ * the file shrinks (truncated or replaced), the reset callback runs so that the consumer can
+ * discard what it was given, and the file is read again from the start.
+ * <p>
+ * Changes are signalled by a {@link WatchService} on the file's directory; the file is also
+ * checked every {@value #POLL_MS} ms, since some file systems do not report modifications.
+ */
+final class CsvTail implements AutoCloseable {
+    private static final long POLL_MS = 1000;
+    private static final int PROBE_BYTES = 4096;
+
+    private final Path file;
+    private final CsvTripLoader loader;
+    private final Consumer<CsvTripLoader.Result> sink;
+    private final Runnable reset;
+    private final Thread thread;
+    private volatile boolean closed;
+    private volatile Exception lastError;
+    private long offset;
+
+    CsvTail(Path file, CsvTripLoader loader, Consumer<CsvTripLoader.Result> sink, Runnable reset) {
+        this.file = file.toAbsolutePath();
+        this.loader = loader;
+        this.sink = sink;
+        this.reset = reset;
+        thread = new Thread(this::run, "bixi-tail-" + file.getFileName());
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * @return the last failure reading the file or handing it to the consumer, or null; failed
+     * reads are retried on the next change
+     */
+    Exception getLastError() {
+        return lastError;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+    }
+
+    private void run() {
+        try (WatchService watcher = file.getFileSystem().newWatchService()) {
+            file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            while (!closed) {
+                ingest();
+                WatchKey key = watcher.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        } catch (IOException e) {
+            lastError = e;
+        }
+    }
+
+    private void ingest() {
+        try {
+            if (!Files.exists(file)) {
+                return;
+            }
+            long size = Files.size(file);
+            if (size < offset) {
+                reset.run();
+                offset = 0;
+            }
+            long end = lastLineEnd(size);
+            if (end > offset) {
+                CsvTripLoader.Result result = loader.read(file, offset, end);
+                offset = end;
+                sink.accept(result);
+            }
+            lastError = null;
+        } catch (IOException | RuntimeException e) {
+            lastError = e;
+        }
+    }
+
+    /**
+     * @return the position just after the last line terminator before {@code size}, or the
+     * current offset when no new line has been completed
+     */
+    private long lastLineEnd(long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer probe = ByteBuffer.allocate(PROBE_BYTES);
+            long end = size;
+            while (end > offset) {
+                long start = Math.max(offset, end - PROBE_BYTES);
+                probe.clear().limit((int) (end - start));
+                int read = channel.read(probe, start);
+                if (read <= 0) {
+                    return offset;
+                }
+                for (int i = read - 1; i >= 0; i--) {
+                    byte b = probe.get(i);
+                    if (b == '\n' || b == '\r') {
+                        return start + i + 1;
+                    }
+                }
+                end = start;
+            }
+            return offset;
+        }
+    }
+}
@@ -0,0 +1,525 @@
+package ca.concordia.controller;
+
+import ca.concordia.model.TripStorage;
+import ca.concordia.model.TripStore;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads a Bixi trip CSV by memory-mapping it and parsing newline-aligned chunks in parallel.
+ * Rows are stored in file order; the header, STARTSTATIONNAME rows, short rows and rows
+ * with unparseable numbers are skipped, exactly like a line-by-line reader would.
+ */
+public class CsvTripLoader {
+    private static final int FIELD_COUNT = 10;
+    private static final long MIN_CHUNK_BYTES = 1L << 20;
+    private static final long MAX_CHUNK_BYTES = 64L << 20;
+    private static final int BOUNDARY_PROBE_BYTES = 4096;
+    private static final byte[] HEADER_PREFIX = "STARTSTATIONNAME".getBytes(StandardCharsets.US_ASCII);
+
+    private final int parallelism;
+
+    public CsvTripLoader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public CsvTripLoader(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public TripStore load(Path path) throws IOException {
+        return load(path, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Loads the rows in bytes {@code [from, to)} of the file; {@code to} is capped at the file size.
+     * The range should start and end on line boundaries. The header is only skipped when the range
+     * starts at the beginning of the file.
+     */
+    public TripStore load(Path path, long from, long to) throws IOException {
+        return read(path, from, to).getTrips();
+    }
+
+    /**
+     * Same as {@link #load(Path, long, long)}, also reporting how many rows were rejected, how
+     * many bytes were read and how long it took.
+     */
+    public Result read(Path path, long from, long to) throws IOException {
+        long startNs = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, from, Math.min(to, channel.size()));
+            long bytes = bounds[bounds.length - 1] - bounds[0];
+            int chunks = bounds.length - 1;
+            TripStorage storage = TripStorage.configured();
+            if (chunks == 1 && storage == TripStorage.HEAP) {
+                ParsedChunk only = parseChunk(channel, bounds[0], bounds[1]);
+                return new Result(only.trips.build(), only.shortRows, only.malformedRows, bytes,
+                        System.nanoTime() - startNs);
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, chunks));
+            try {
+                // Only a window of parsed chunks is held at a time; each is merged and dropped in file order.
+                @SuppressWarnings("unchecked")
+                Future<ParsedChunk>[] window = (Future<ParsedChunk>[]) new Future<?>[Math.min(chunks, parallelism * 2)];
+                int submitted = 0;
+                for (; submitted < window.length; submitted++) {
+                    window[submitted] = submitChunk(executor, channel, bounds, submitted);
+                }
+                TripStore.Builder merged = null;
+                long shortRows = 0;
+                long malformedRows = 0;
+                for (int i = 0; i < chunks; i++) {
+                    ParsedChunk part = window[i % window.length].get();
+                    window[i % window.length] = submitted < chunks
+                            ? submitChunk(executor, channel, bounds, submitted++)
+                            : null;
+                    if (merged == null) {
+                        merged = new TripStore.Builder(estimateTrips(part.trips, bounds), storage);
+                    }
+                    merged.append(part.trips);
+                    shortRows += part.shortRows;
+                    malformedRows += part.malformedRows;
+                }
+                return new Result(merged.build(), shortRows, malformedRows, bytes, System.nanoTime() - startNs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while loading " + path);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                throw new IOException("Failed to parse " + path, e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private Future<ParsedChunk> submitChunk(ExecutorService executor, FileChannel channel, long[] bounds,
+                                                  int chunk) {
+        long start = bounds[chunk];
+        long end = bounds[chunk + 1];
+        return executor.submit(() -> parseChunk(channel, start, end));
+    }
+
+    /**
+     * Extrapolates the whole file's row count from the first chunk, with some slack so the merged
+     * columns rarely have to grow.
+     */
+    private static int estimateTrips(TripStore.Builder first, long[] bounds) {
+        long firstBytes = Math.max(1, bounds[1] - bounds[0]);
+        long total = bounds[bounds.length - 1] - bounds[0];
+        double estimate = (double) first.size() * total / firstBytes * 1.05 + 1024;
+        return (int) Math.min(Integer.MAX_VALUE - 8, (long) estimate);
+    }
+
+    private long[] chunkBounds(FileChannel channel, long from, long to) throws IOException {
+        long size = Math.max(0, to - from);
+        long chunkBytes = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, size / (parallelism * 4L)));
+        int nominal = (int) Math.max(1, (size + chunkBytes - 1) / chunkBytes);
+
+        long[] bounds = new long[nominal + 1];
+        bounds[0] = from;
+        int count = 1;
+        ByteBuffer probe = ByteBuffer.allocate(BOUNDARY_PROBE_BYTES);
+        for (int i = 1; i < nominal; i++) {
+            long boundary = nextLineStart(channel, Math.max(from + i * chunkBytes, bounds[count - 1]), probe);
+            if (boundary >= from + size) {
+                break;
+            }
+            if (boundary > bounds[count - 1]) {
+                bounds[count++] = boundary;
+            }
+        }
+        bounds[count++] = from + size;
+
+        long[] trimmed = new long[count];
+        System.arraycopy(bounds, 0, trimmed, 0, count);
+        return trimmed;
+    }
+
+    private long nextLineStart(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        long pos = position;
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, pos);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = probe.get(i);
+                if (b == '\n' || b == '\r') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+    }
+
+    private ParsedChunk parseChunk(FileChannel channel, long start, long end) throws IOException {
+        TripStore.Builder trips = new TripStore.Builder();
+        if (end <= start) {
+            return new ParsedChunk(trips, 0, 0);
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        ChunkParser parser = new ChunkParser(buffer, start == 0, trips);
+        parser.run();
+        return new ParsedChunk(trips, parser.shortRows, parser.malformedRows);
+    }
+
+    /**
+     * Trips parsed from one file or byte range.
+     */
+    public static final class Result {
+        private final TripStore trips;
+        private final long shortRows;
+        private final long malformedRows;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        Result(TripStore trips, long shortRows, long malformedRows, long bytes, long elapsedNanos) {
+            this.trips = trips;
+            this.shortRows = shortRows;
+            this.malformedRows = malformedRows;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public TripStore getTrips() {
+            return trips;
+        }
+
+        /**
+         * @return rows that were neither blank nor a header but had too few fields or unparseable numbers
+         */
+        public long getRejectedRows() {
+            return shortRows + malformedRows;
+        }
+
+        /**
+         * @return rejected rows with fewer than 10 fields
+         */
+        public long getShortRows() {
+            return shortRows;
+        }
+
+        /**
+         * @return rejected rows whose coordinates or times are not numbers
+         */
+        public long getMalformedRows() {
+            return malformedRows;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+
+    private static final class ParsedChunk {
+        final TripStore.Builder trips;
+        final int shortRows;
+        final int malformedRows;
+
+        ParsedChunk(TripStore.Builder trips, int shortRows, int malformedRows) {
+            this.trips = trips;
+            this.shortRows = shortRows;
+            this.malformedRows = malformedRows;
+        }
+    }
+
+    private static final class ChunkParser {
+        private final MappedByteBuffer buffer;
+        private final boolean skipHeader;
+        private final TripStore.Builder out;
+        private final int[] fieldStart = new int[FIELD_COUNT];
+        private final int[] fieldEnd = new int[FIELD_COUNT];
+        private final ByteIdTable stationIds = new ByteIdTable();
+        private final ByteIdTable arrondissementIds = new ByteIdTable();
+        private byte[] line = new byte[256];
+        int shortRows;
+        int malformedRows;
+
+        ChunkParser(MappedByteBuffer buffer, boolean skipHeader, TripStore.Builder out) {
+            this.buffer = buffer;
+            this.skipHeader = skipHeader;
+            this.out = out;
+        }
+
+        void run() {
+            int limit = buffer.limit();
+            int pos = 0;
+            boolean header = skipHeader;
+            while (pos < limit) {
+                int lineEnd = pos;
+                while (lineEnd < limit) {
+                    byte b = buffer.get(lineEnd);
+                    if (b == '\n' || b == '\r') {
+                        break;
+                    }
+                    lineEnd++;
+                }
+                if (header) {
+                    header = false;
+                } else if (lineEnd > pos) {
+                    parseLine(pos, lineEnd - pos);
+                }
+                pos = lineEnd + 1;
+                if (lineEnd < limit && buffer.get(lineEnd) == '\r' && pos < limit && buffer.get(pos) == '\n') {
+                    pos++;
+                }
+            }
+        }
+
+        private void parseLine(int offset, int length) {
+            if (line.length < length) {
+                line = new byte[Math.max(length, line.length * 2)];
+            }
+            buffer.get(offset, line, 0, length);
+            if (startsWithHeader(length)) {
+                return;
+            }
+
+            int fields = 0;
+            int start = 0;
+            for (int i = 0; i <= length && fields < FIELD_COUNT; i++) {
+                if (i == length || line[i] == ',') {
+                    fieldStart[fields] = start;
+                    fieldEnd[fields] = i;
+                    trim(fields);
+                    fields++;
+                    start = i + 1;
+                }
+            }
+            if (fields < FIELD_COUNT) {
+                shortRows++;
+                return;
+            }
+
+            try {
+                double startLat = parseDouble(2);
+                double startLon = parseDouble(3);
+                double endLat = parseDouble(6);
+                double endLon = parseDouble(7);
+                long startTimeMs = parseLong(8);
+                long endTimeMs = parseLong(9);
+                out.add(stationId(0, startLat, startLon), arrondissementId(1),
+                        stationId(4, endLat, endLon), arrondissementId(5),
+                        startTimeMs, endTimeMs);
+            } catch (NumberFormatException e) {
+                malformedRows++;
+            }
+        }
+
+        private boolean startsWithHeader(int length) {
+            if (length < HEADER_PREFIX.length) {
+                return false;
+            }
+            for (int i = 0; i < HEADER_PREFIX.length; i++) {
+                if (line[i] != HEADER_PREFIX[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void trim(int field) {
+            int s = fieldStart[field];
+            int e = fieldEnd[field];
+            while (s < e && (line[s] & 0xFF) <= ' ') {
+                s++;
+            }
+            while (e > s && (line[e - 1] & 0xFF) <= ' ') {
+                e--;
+            }
+            fieldStart[field] = s;
+            fieldEnd[field] = e;
+        }
+
+        private int stationId(int field, double latitude, double longitude) {
+            int length = fieldEnd[field] - fieldStart[field];
+            int id = stationIds.find(line, fieldStart[field], length);
+            if (id == -1) {
+                id = out.getDictionary().stationId(text(field), latitude, longitude);
+                stationIds.put(line, fieldStart[field], length, id);
+            }
+            return id;
+        }
+
+        private int arrondissementId(int field) {
+            int length = fieldEnd[field] - fieldStart[field];
+            int id = arrondissementIds.find(line, fieldStart[field], length);
+            if (id == -1) {
+                id = out.getDictionary().arrondissementId(text(field));
+                arrondissementIds.put(line, fieldStart[field], length, id);
+            }
+            return id;
+        }
+
+        private long parseLong(int field) {
+            int s = fieldStart[field];
+            int e = fieldEnd[field];
+            int i = s;
+            boolean negative = false;
+            if (i < e && (line[i] == '-' || line[i] == '+')) {
+                negative = line[i] == '-';
+                i++;
+            }
+            int digits = e - i;
+            if (digits < 1 || digits > 18) {
+                return Long.parseLong(text(field));
+            }
+            long value = 0;
+            for (; i < e; i++) {
+                int d = line[i] - '0';
+                if (d < 0 || d > 9) {
+                    return Long.parseLong(text(field));
+                }
+                value = value * 10 + d;
+            }
+            return negative ? -value : value;
+        }
+
+        private double parseDouble(int field) {
+            int s = fieldStart[field];
+            int e = fieldEnd[field];
+            int i = s;
+            boolean negative = false;
+            if (i < e && (line[i] == '-' || line[i] == '+')) {
+                negative = line[i] == '-';
+                i++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int fractionDigits = 0;
+            boolean seenDot = false;
+            for (; i < e; i++) {
+                byte b = line[i];
+                if (b == '.' && !seenDot) {
+                    seenDot = true;
+                    continue;
+                }
+                int d = b - '0';
+                if (d < 0 || d > 9 || digits == 18) {
+                    return Double.parseDouble(text(field));
+                }
+                mantissa = mantissa * 10 + d;
+                digits++;
+                if (seenDot) {
+                    fractionDigits++;
+                }
+            }
+            // Only mantissas below 2^53 divided by an exact power of ten are correctly rounded.
+            if (digits == 0 || mantissa > (1L << 53) || fractionDigits >= POWERS_OF_TEN.length) {
+                return Double.parseDouble(text(field));
+            }
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+
+        private String text(int field) {
+            return new String(line, fieldStart[field], fieldEnd[field] - fieldStart[field], StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Chunk-local table from the raw bytes of a name to its dictionary id, so repeated station and
+     * arrondissement names are resolved without decoding or hashing a String again.
+     */
+    private static final class ByteIdTable {
+        private byte[][] keys = new byte[256][];
+        private int[] ids = new int[256];
+        private int[] hashes = new int[256];
+        private int size;
+
+        int find(byte[] bytes, int offset, int length) {
+            int hash = hash(bytes, offset, length);
+            int mask = keys.length - 1;
+            for (int slot = hash & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && matches(keys[slot], bytes, offset, length)) {
+                    return ids[slot];
+                }
+            }
+            return -1;
+        }
+
+        void put(byte[] bytes, int offset, int length, int id) {
+            int hash = hash(bytes, offset, length);
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            byte[] key = new byte[length];
+            System.arraycopy(bytes, offset, key, 0, length);
+            keys[slot] = key;
+            ids[slot] = id;
+            hashes[slot] = hash;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        private static int hash(byte[] bytes, int offset, int length) {
+            int hash = 1;
+            for (int i = offset; i < offset + length; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+        private boolean matches(byte[] key, byte[] bytes, int offset, int length) {
+            if (key.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (key[i] != bytes[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void grow() {
+            byte[][] oldKeys = keys;
+            int[] oldIds = ids;
+            int[] oldHashes = hashes;
+            keys = new byte[oldKeys.length * 2][];
+            ids = new int[oldKeys.length * 2];
+            hashes = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == null) {
+                    continue;
+                }
+                int slot = oldHashes[i] & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                ids[slot] = oldIds[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+}
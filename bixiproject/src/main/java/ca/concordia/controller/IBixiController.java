@@ -3,9 +3,31 @@ package ca.concordia.controller;
 import ca.concordia.model.Arrondissement;
 import ca.concordia.model.BixiStation;
 import ca.concordia.model.BixiTrip;
+import ca.concordia.model.DurationPercentiles;
+import ca.concordia.model.FileLoadReport;
 import ca.concordia.model.RushHour;
 import ca.concordia.model.MonthComparison;
-
+import ca.concordia.model.SimpleList;
+import ca.concordia.util.Sorts;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Queries over loaded Bixi trips. Trip queries return lazy iterables: trips are created only
+ * while iterating, so a caller can stop after the first results. {@link BixiController} returns
+ * {@link ca.concordia.model.TripSlice}, which can also be sized and paged by offset and limit.
+ * <p>
+ * Beyond loading and unloading files and the eight requirements, methods have defaults so that
+ * other implementations only need those: several files are loaded only one at a time, duration
+ * percentiles are computed from the matching trips, and the dataset version never changes.
+ */
 public interface IBixiController {
 
     /**
@@ -14,6 +36,66 @@ public interface IBixiController {
      */
     void loadFile(String filePath);
 
+    /**
+     * Loads several Bixi data files, parsed concurrently, as one set of trips. By default only a
+     * single file is accepted, and loaded through {@link #loadFile}.
+     * @param files the data files, in the order their trips are added
+     * @throws IllegalArgumentException if the implementation cannot load that many files
+     */
+    default void loadFiles(Collection<Path> files) {
+        if (files.size() != 1) {
+            throw new IllegalArgumentException("Expected exactly one file, got " + files.size());
+        }
+        loadFile(files.iterator().next().toString());
+    }
+
+    /**
+     * Loads the data files of a directory whose names match a glob pattern, in name order, through
+     * {@link #loadFiles}.
+     * @param directory the directory to scan (not recursively)
+     * @param glob the file name pattern, for example "*.csv"
+     */
+    default void loadDirectory(Path directory, String glob) {
+        PathMatcher matcher = directory.getFileSystem().getPathMatcher("glob:" + glob);
+        SimpleList<Path> files = new SimpleList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (Files.isRegularFile(entry) && matcher.matches(entry.getFileName())) {
+                    files.add(entry);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read directory: " + directory, e);
+        }
+        Sorts.sort(files, Comparator.comparing(path -> path.getFileName().toString()));
+        Path[] sorted = new Path[files.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = files.get(i);
+        }
+        loadFiles(Arrays.asList(sorted));
+    }
+
+    /**
+     * Removes the trips loaded from one file; unknown tags are ignored.
+     * @param fileTag the tag of the file, as given by its load report
+     */
+    void unloadFile(int fileTag);
+
+    /**
+     * @return one report per loaded file (tag, rows, rejected rows, throughput), in load order
+     */
+    default Iterable<FileLoadReport> getLoadReports() {
+        return new SimpleList<>();
+    }
+
+    /**
+     * @return a number that changes whenever the loaded trips change, so results computed under
+     * one version stay valid as long as it is returned; 0 by default, in which case only changes
+     * made through a {@link CachingBixiController} are noticed by it
+     */
+    default long getDatasetVersion() {
+        return 0;
+    }
 
     /**
      * @return total number of trips currently loaded in memory
@@ -48,6 +130,24 @@ public interface IBixiController {
      */
     Iterable<BixiTrip> getTripsByDuration(float minDuration);
 
+    /**
+     * Retrieves the p50/p95/p99 durations of the trips starting at a station.
+     * @param stationName the station name, matched ignoring case
+     * @return the percentiles in minutes, -1 if no trip starts there
+     */
+    default DurationPercentiles getDurationPercentilesByStation(String stationName) {
+        return DurationPercentiles.of(getTripsByStation(stationName, "start"));
+    }
+
+    /**
+     * Retrieves the p50/p95/p99 durations of the trips starting in a month.
+     * @param month the month in "YYYY-MM" format
+     * @return the percentiles in minutes, -1 if no trip starts in that month
+     */
+    default DurationPercentiles getDurationPercentilesByMonth(String month) {
+        return DurationPercentiles.of(getTripsByMonth(month));
+    }
+
     /**
      * Retrieves trips that started within the specified time range.
      * @param startTime the start time in "YYYY-MM-DD HH:MM:SS" format
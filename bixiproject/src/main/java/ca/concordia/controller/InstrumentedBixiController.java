@@ -0,0 +1,185 @@
+package ca.concordia.controller;
+
+import ca.concordia.metrics.BixiMetrics;
+import ca.concordia.metrics.OperationMetrics;
+import ca.concordia.model.Arrondissement;
+import ca.concordia.model.BixiStation;
+import ca.concordia.model.BixiTrip;
+import ca.concordia.model.DurationPercentiles;
+import ca.concordia.model.FileLoadReport;
+import ca.concordia.model.MonthComparison;
+import ca.concordia.model.RushHour;
+import ca.concordia.model.SimpleList;
+import ca.concordia.model.TripSlice;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Records the latency, rows scanned and returned, and allocation of every call into
+ * {@link BixiMetrics}, one operation per method. Rows scanned are those the delegate reports
+ * through {@link BixiMetrics#addRowsScanned}; allocation is counted on the calling thread only.
+ * Lazy trip results are counted by size and not iterated. Calls pass straight through unless
+ * {@value BixiMetrics#ENABLED_PROPERTY} is set.
+ */
+public class InstrumentedBixiController implements IBixiController {
+    private final IBixiController delegate;
+    private final OperationMetrics loadFile = BixiMetrics.operation("loadFile");
+    private final OperationMetrics loadFiles = BixiMetrics.operation("loadFiles");
+    private final OperationMetrics loadDirectory = BixiMetrics.operation("loadDirectory");
+    private final OperationMetrics unloadFile = BixiMetrics.operation("unloadFile");
+    private final OperationMetrics tripsByStation = BixiMetrics.operation("getTripsByStation");
+    private final OperationMetrics tripsByMonth = BixiMetrics.operation("getTripsByMonth");
+    private final OperationMetrics tripsByDuration = BixiMetrics.operation("getTripsByDuration");
+    private final OperationMetrics stationDurations = BixiMetrics.operation("getDurationPercentilesByStation");
+    private final OperationMetrics monthDurations = BixiMetrics.operation("getDurationPercentilesByMonth");
+    private final OperationMetrics tripsByStartTime = BixiMetrics.operation("getTripsByStartTime");
+    private final OperationMetrics topArrondissements = BixiMetrics.operation("getTopArrondissements");
+    private final OperationMetrics topStations = BixiMetrics.operation("getTopStations");
+    private final OperationMetrics rushHour = BixiMetrics.operation("getRushHourOfMonth");
+    private final OperationMetrics compareMonths = BixiMetrics.operation("compareMonths");
+
+    public InstrumentedBixiController(IBixiController delegate) {
+        this.delegate = delegate;
+    }
+
+    public IBixiController getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void loadFile(String filePath) {
+        measure(loadFile, () -> {
+            delegate.loadFile(filePath);
+            return null;
+        });
+    }
+
+    @Override
+    public void loadFiles(Collection<Path> files) {
+        measure(loadFiles, () -> {
+            delegate.loadFiles(files);
+            return null;
+        });
+    }
+
+    @Override
+    public void loadDirectory(Path directory, String glob) {
+        measure(loadDirectory, () -> {
+            delegate.loadDirectory(directory, glob);
+            return null;
+        });
+    }
+
+    @Override
+    public void unloadFile(int fileTag) {
+        measure(unloadFile, () -> {
+            delegate.unloadFile(fileTag);
+            return null;
+        });
+    }
+
+    @Override
+    public Iterable<FileLoadReport> getLoadReports() {
+        return delegate.getLoadReports();
+    }
+
+    @Override
+    public long getDatasetVersion() {
+        return delegate.getDatasetVersion();
+    }
+
+    @Override
+    public int getTotalTripsLoaded() {
+        return delegate.getTotalTripsLoaded();
+    }
+
+    @Override
+    public int getUniqueStationsLoaded() {
+        return delegate.getUniqueStationsLoaded();
+    }
+
+    @Override
+    public Iterable<BixiTrip> getTripsByStation(String stationName, String mode) {
+        return measure(tripsByStation, () -> delegate.getTripsByStation(stationName, mode));
+    }
+
+    @Override
+    public Iterable<BixiTrip> getTripsByMonth(String month) {
+        return measure(tripsByMonth, () -> delegate.getTripsByMonth(month));
+    }
+
+    @Override
+    public Iterable<BixiTrip> getTripsByDuration(float minDuration) {
+        return measure(tripsByDuration, () -> delegate.getTripsByDuration(minDuration));
+    }
+
+    @Override
+    public DurationPercentiles getDurationPercentilesByStation(String stationName) {
+        return measure(stationDurations, () -> delegate.getDurationPercentilesByStation(stationName));
+    }
+
+    @Override
+    public DurationPercentiles getDurationPercentilesByMonth(String month) {
+        return measure(monthDurations, () -> delegate.getDurationPercentilesByMonth(month));
+    }
+
+    @Override
+    public Iterable<BixiTrip> getTripsByStartTime(String startTime, String finalTime) {
+        return measure(tripsByStartTime, () -> delegate.getTripsByStartTime(startTime, finalTime));
+    }
+
+    @Override
+    public Iterable<Arrondissement> getTopArrondissements(int k) {
+        return measure(topArrondissements, () -> delegate.getTopArrondissements(k));
+    }
+
+    @Override
+    public Iterable<BixiStation> getTopStations(int k, String startDate, String endDate) {
+        return measure(topStations, () -> delegate.getTopStations(k, startDate, endDate));
+    }
+
+    @Override
+    public RushHour getRushHourOfMonth(int month) {
+        return measure(rushHour, () -> delegate.getRushHourOfMonth(month));
+    }
+
+    @Override
+    public MonthComparison compareMonths(int month1, int month2, int k) {
+        return measure(compareMonths, () -> delegate.compareMonths(month1, month2, k));
+    }
+
+    private static <T> T measure(OperationMetrics operation, Supplier<T> call) {
+        if (!BixiMetrics.ENABLED) {
+            return call.get();
+        }
+        long scanned = BixiMetrics.getRowsScanned();
+        long allocated = BixiMetrics.getAllocatedBytes();
+        long startNs = System.nanoTime();
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException | Error e) {
+            operation.recordFailure(System.nanoTime() - startNs);
+            throw e;
+        }
+        long elapsedNs = System.nanoTime() - startNs;
+        operation.record(elapsedNs, BixiMetrics.getRowsScanned() - scanned, rows(result),
+                allocated < 0 ? -1 : BixiMetrics.getAllocatedBytes() - allocated);
+        return result;
+    }
+
+    private static long rows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof TripSlice slice) {
+            return slice.size();
+        }
+        if (result instanceof SimpleList<?> list) {
+            return list.size();
+        }
+        return 1;
+    }
+}
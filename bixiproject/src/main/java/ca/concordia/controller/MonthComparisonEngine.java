@@ -0,0 +1,172 @@
+package ca.concordia.controller;
+
+import ca.concordia.model.BixiStation;
+import ca.concordia.model.MonthComparison;
+import ca.concordia.model.RollupCube;
+import ca.concordia.model.RushHour;
+import ca.concordia.model.SimpleList;
+import ca.concordia.model.StationDictionary;
+import ca.concordia.util.ParallelAggregator;
+import ca.concordia.util.TopK;
+
+import java.util.Arrays;
+
+/**
+ * Computes {@link MonthComparison.MonthStats} for any number of months (1-12, all years) in a
+ * single sweep over the day rows of the rollup cube. Each requested month gets its own trip
+ * total, start/end station counts, hour histogram and count of active days; day ranges are
+ * folded in parallel through a {@link ParallelAggregator} and their accumulators summed.
+ */
+class MonthComparisonEngine {
+    private final RollupCube cube;
+    private final StationDictionary dictionary;
+    private final ParallelAggregator aggregator;
+
+    MonthComparisonEngine(RollupCube cube, StationDictionary dictionary, ParallelAggregator aggregator) {
+        this.cube = cube;
+        this.dictionary = dictionary;
+        this.aggregator = aggregator;
+    }
+
+    MonthComparison.MonthStats[] compare(int k, int... months) {
+        int[] slotOfMonth = slotsFor(months);
+        Accumulator sums = sweep(slotOfMonth, true);
+
+        MonthComparison.MonthStats[] stats = new MonthComparison.MonthStats[months.length];
+        for (int i = 0; i < months.length; i++) {
+            int month = months[i];
+            int slot = month >= 1 && month <= 12 ? slotOfMonth[month] : -1;
+            if (slot == -1) {
+                stats[i] = new MonthComparison.MonthStats(month, 0, new SimpleList<>(), new SimpleList<>(),
+                        new RushHour(-1, 0.0));
+            } else {
+                stats[i] = new MonthComparison.MonthStats(month, sums.totals[slot],
+                        topStations(dictionary, sums.starts[slot], k),
+                        topStations(dictionary, sums.ends[slot], k),
+                        rushHour(sums.hourly[slot], sums.activeDays[slot]));
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Same sweep as {@link #compare} restricted to the hour histogram of one month.
+     */
+    RushHour rushHour(int month) {
+        int[] slotOfMonth = slotsFor(month);
+        if (month < 1 || month > 12) {
+            return new RushHour(-1, 0.0);
+        }
+        Accumulator sums = sweep(slotOfMonth, false);
+        return rushHour(sums.hourly[0], sums.activeDays[0]);
+    }
+
+    /**
+     * Maps each month (1-12) to an accumulator slot, or -1 when not requested. Months requested
+     * more than once share one slot.
+     */
+    private static int[] slotsFor(int... months) {
+        int[] slotOfMonth = new int[13];
+        Arrays.fill(slotOfMonth, -1);
+        int slots = 0;
+        for (int month : months) {
+            if (month >= 1 && month <= 12 && slotOfMonth[month] == -1) {
+                slotOfMonth[month] = slots++;
+            }
+        }
+        return slotOfMonth;
+    }
+
+    private Accumulator sweep(int[] slotOfMonth, boolean withStations) {
+        int slots = 0;
+        for (int slot : slotOfMonth) {
+            slots = Math.max(slots, slot + 1);
+        }
+        int slotCount = slots;
+        int stations = withStations ? dictionary.getStationCount() : 0;
+        return aggregator.aggregate(0, cube.getDayCount(),
+                () -> new Accumulator(slotCount, stations, withStations),
+                (sums, from, to) -> {
+                    for (int day = from; day < to; day++) {
+                        int slot = slotOfMonth[cube.getMonth(day)];
+                        if (slot == -1 || cube.getTripCount(day) == 0) {
+                            continue;
+                        }
+                        sums.totals[slot] += cube.getTripCount(day);
+                        sums.activeDays[slot]++;
+                        for (int hour = 0; hour < 24; hour++) {
+                            sums.hourly[slot][hour] += cube.getTripCount(day, hour);
+                        }
+                        if (withStations) {
+                            cube.addStationCounts(day, day + 1, sums.starts[slot], sums.ends[slot]);
+                        }
+                    }
+                },
+                Accumulator::merge);
+    }
+
+    /**
+     * @return the k stations with the highest counts, by descending count then case-insensitive name
+     */
+    static SimpleList<BixiStation> topStations(StationDictionary dictionary, int[] counts, int k) {
+        int[] winners = TopK.select(counts, k, (a, b) ->
+                dictionary.getStationName(a).compareToIgnoreCase(dictionary.getStationName(b)));
+        SimpleList<BixiStation> top = new SimpleList<>();
+        for (int id : winners) {
+            top.add(new BixiStation(dictionary.getStationName(id), counts[id]));
+        }
+        return top;
+    }
+
+    /**
+     * @return the hour with the highest average trips per active day, earliest hour on ties
+     */
+    static RushHour rushHour(int[] hourlyCounts, int dayCount) {
+        if (dayCount == 0) {
+            return new RushHour(-1, 0.0);
+        }
+
+        int bestHour = 0;
+        double bestAvg = -1;
+        for (int hour = 0; hour < 24; hour++) {
+            double avg = (double) hourlyCounts[hour] / dayCount;
+            if (avg > bestAvg) {
+                bestAvg = avg;
+                bestHour = hour;
+            }
+        }
+        return new RushHour(bestHour, bestAvg);
+    }
+
+    /**
+     * Per-slot totals for one range of days.
+     */
+    private static final class Accumulator {
+        final int[] totals;
+        final int[] activeDays;
+        final int[][] hourly;
+        final int[][] starts;
+        final int[][] ends;
+
+        Accumulator(int slots, int stations, boolean withStations) {
+            totals = new int[slots];
+            activeDays = new int[slots];
+            hourly = new int[slots][24];
+            starts = withStations ? new int[slots][stations] : null;
+            ends = withStations ? new int[slots][stations] : null;
+        }
+
+        Accumulator merge(Accumulator other) {
+            ParallelAggregator.sum(totals, other.totals);
+            ParallelAggregator.sum(activeDays, other.activeDays);
+            for (int slot = 0; slot < totals.length; slot++) {
+                ParallelAggregator.sum(hourly[slot], other.hourly[slot]);
+                if (starts != null) {
+                    ParallelAggregator.sum(starts[slot], other.starts[slot]);
+                    ParallelAggregator.sum(ends[slot], other.ends[slot]);
+                }
+            }
+            return this;
+        }
+    }
+}
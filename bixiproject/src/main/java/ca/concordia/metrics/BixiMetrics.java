@@ -0,0 +1,147 @@
+package ca.concordia.metrics;
+
+import ca.concordia.model.SimpleList;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide metrics of controller operations and loads, registered as MBeans under
+ * {@value #DOMAIN} and printable with {@link #dump()}.
+ * <p>
+ * Nothing is recorded unless {@value #ENABLED_PROPERTY} is {@code true}. The flag is read once,
+ * so when it is off the checks in the hot paths fold away.
+ */
+public final class BixiMetrics {
+    public static final String ENABLED_PROPERTY = "bixi.metrics";
+    public static final String DUMP_SECONDS_PROPERTY = "bixi.metrics.dump.seconds";
+    public static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+    public static final String DOMAIN = "ca.concordia.bixi";
+
+    private static final SimpleList<OperationMetrics> OPERATIONS = new SimpleList<>();
+    private static final LoaderMetrics LOADER = new LoaderMetrics();
+    /** Rows scanned by the current thread so far; a query's share is the difference across it. */
+    private static final ThreadLocal<long[]> SCANNED = ThreadLocal.withInitial(() -> new long[1]);
+    private static final com.sun.management.ThreadMXBean THREADS = ENABLED ? allocationCounter() : null;
+    private static ScheduledExecutorService dumper;
+
+    static {
+        if (ENABLED) {
+            register(LOADER, "type=Loader");
+        }
+    }
+
+    private BixiMetrics() {
+    }
+
+    /**
+     * @return the metrics of operation {@code name}, registered on first use
+     */
+    public static synchronized OperationMetrics operation(String name) {
+        for (OperationMetrics operation : OPERATIONS) {
+            if (operation.getName().equals(name)) {
+                return operation;
+            }
+        }
+        OperationMetrics operation = new OperationMetrics(name);
+        OPERATIONS.add(operation);
+        if (ENABLED) {
+            register(operation, "type=Operation,name=" + ObjectName.quote(name));
+        }
+        return operation;
+    }
+
+    public static LoaderMetrics loader() {
+        return LOADER;
+    }
+
+    /**
+     * Counts {@code rows} trips read by the current thread on behalf of the running query.
+     */
+    public static void addRowsScanned(long rows) {
+        if (ENABLED) {
+            SCANNED.get()[0] += rows;
+        }
+    }
+
+    public static long getRowsScanned() {
+        return ENABLED ? SCANNED.get()[0] : 0;
+    }
+
+    /**
+     * @return bytes allocated by the current thread since it started, or -1 if the JVM cannot tell
+     */
+    public static long getAllocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * @return one line for the loader and one per operation
+     */
+    public static synchronized String dump() {
+        StringBuilder out = new StringBuilder(LOADER.toString());
+        for (OperationMetrics operation : OPERATIONS) {
+            out.append(System.lineSeparator()).append(operation);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Prints {@link #dump()} to {@code out} every {@code periodSeconds} on a daemon thread,
+     * replacing any earlier schedule.
+     */
+    public static synchronized void startDump(long periodSeconds, PrintStream out) {
+        stopDump();
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bixi-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> out.println(dump()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Starts the periodic dump to standard error if {@value #DUMP_SECONDS_PROPERTY} is positive.
+     */
+    public static void startConfiguredDump() {
+        long seconds = Long.getLong(DUMP_SECONDS_PROPERTY, 0);
+        if (ENABLED && seconds > 0) {
+            startDump(seconds, System.err);
+        }
+    }
+
+    public static synchronized void stopDump() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+
+    private static void register(Object bean, String properties) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(bean, name);
+            }
+        } catch (JMException e) {
+            // still readable through dump()
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean counter && counter.isThreadAllocatedMemorySupported()) {
+            counter.setThreadAllocatedMemoryEnabled(true);
+            return counter;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,94 @@
+package ca.concordia.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parse and index build times of loads, with rows and bytes read and rows rejected by reason.
+ */
+public final class LoaderMetrics implements LoaderMetricsMBean {
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder rowsLoaded = new LongAdder();
+    private final LongAdder shortRows = new LongAdder();
+    private final LongAdder malformedRows = new LongAdder();
+    private final LatencyHistogram parseNanos = new LatencyHistogram();
+    private final LatencyHistogram indexNanos = new LatencyHistogram();
+
+    LoaderMetrics() {
+    }
+
+    public void recordParse(long bytes, long rows, long shortRows, long malformedRows, long elapsedNanos) {
+        bytesRead.add(bytes);
+        rowsLoaded.add(rows);
+        this.shortRows.add(shortRows);
+        this.malformedRows.add(malformedRows);
+        parseNanos.record(elapsedNanos);
+    }
+
+    public void recordIndexBuild(long elapsedNanos) {
+        indexNanos.record(elapsedNanos);
+    }
+
+    @Override
+    public long getFilesRead() {
+        return parseNanos.getCount();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getRowsLoaded() {
+        return rowsLoaded.sum();
+    }
+
+    @Override
+    public long getShortRows() {
+        return shortRows.sum();
+    }
+
+    @Override
+    public long getMalformedRows() {
+        return malformedRows.sum();
+    }
+
+    @Override
+    public double getMeanParseMillis() {
+        return parseNanos.getMean() / 1e6;
+    }
+
+    @Override
+    public double getMaxParseMillis() {
+        return parseNanos.getMax() / 1e6;
+    }
+
+    @Override
+    public double getMeanIndexMillis() {
+        return indexNanos.getMean() / 1e6;
+    }
+
+    @Override
+    public double getMaxIndexMillis() {
+        return indexNanos.getMax() / 1e6;
+    }
+
+    @Override
+    public void reset() {
+        bytesRead.reset();
+        rowsLoaded.reset();
+        shortRows.reset();
+        malformedRows.reset();
+        parseNanos.reset();
+        indexNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-32s files=%d bytes=%d rows=%d short=%d malformed=%d parse mean=%.1fms max=%.1fms"
+                        + " index builds=%d mean=%.1fms max=%.1fms",
+                "loader", getFilesRead(), getBytesRead(), getRowsLoaded(), getShortRows(), getMalformedRows(),
+                getMeanParseMillis(), getMaxParseMillis(), indexNanos.getCount(), getMeanIndexMillis(),
+                getMaxIndexMillis());
+    }
+}
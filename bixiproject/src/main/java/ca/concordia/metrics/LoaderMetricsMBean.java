@@ -0,0 +1,32 @@
+package ca.concordia.metrics;
+
+/**
+ * JMX view of CSV loading. Times are in milliseconds.
+ */
+public interface LoaderMetricsMBean {
+    long getFilesRead();
+
+    long getBytesRead();
+
+    long getRowsLoaded();
+
+    /**
+     * @return rows rejected for having fewer than 10 fields
+     */
+    long getShortRows();
+
+    /**
+     * @return rows rejected because a coordinate or time was not a number
+     */
+    long getMalformedRows();
+
+    double getMeanParseMillis();
+
+    double getMaxParseMillis();
+
+    double getMeanIndexMillis();
+
+    double getMaxIndexMillis();
+
+    void reset();
+}
@@ -0,0 +1,118 @@
+package ca.concordia.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and row counts of one controller operation.
+ */
+public final class OperationMetrics implements OperationMetricsMBean {
+    private final String name;
+    private final LatencyHistogram latencyNanos = new LatencyHistogram();
+    private final AtomicLong failures = new AtomicLong();
+    private final LongAdder rowsScanned = new LongAdder();
+    private final LongAdder rowsReturned = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private volatile boolean allocationKnown = true;
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param allocated bytes allocated by the calling thread, or -1 if unknown
+     */
+    public void record(long elapsedNanos, long scanned, long returned, long allocated) {
+        latencyNanos.record(elapsedNanos);
+        rowsScanned.add(scanned);
+        rowsReturned.add(returned);
+        if (allocated < 0) {
+            allocationKnown = false;
+        } else {
+            allocatedBytes.add(allocated);
+        }
+    }
+
+    public void recordFailure(long elapsedNanos) {
+        latencyNanos.record(elapsedNanos);
+        failures.incrementAndGet();
+    }
+
+    public LatencyHistogram getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return latencyNanos.getCount();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latencyNanos.getMean() / 1000;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latencyNanos.getValueAtPercentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return latencyNanos.getValueAtPercentile(90) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latencyNanos.getValueAtPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latencyNanos.getMax() / 1000.0;
+    }
+
+    @Override
+    public long getRowsScanned() {
+        return rowsScanned.sum();
+    }
+
+    @Override
+    public long getRowsReturned() {
+        return rowsReturned.sum();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return allocationKnown ? allocatedBytes.sum() : -1;
+    }
+
+    @Override
+    public void reset() {
+        latencyNanos.reset();
+        failures.set(0);
+        rowsScanned.reset();
+        rowsReturned.reset();
+        allocatedBytes.reset();
+    }
+
+    @Override
+    public String toString() {
+        long count = getCount();
+        return String.format("%-32s n=%d fail=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus max=%.1fus"
+                        + " scanned=%d returned=%d alloc/op=%s",
+                name, count, getFailures(), getMeanMicros(), getP50Micros(), getP90Micros(), getP99Micros(),
+                getMaxMicros(), getRowsScanned(), getRowsReturned(),
+                !allocationKnown ? "n/a" : count == 0 ? "0" : Long.toString(allocatedBytes.sum() / count));
+    }
+}
@@ -0,0 +1,33 @@
+package ca.concordia.metrics;
+
+/**
+ * JMX view of one controller operation. Times are in microseconds.
+ */
+public interface OperationMetricsMBean {
+    String getName();
+
+    long getCount();
+
+    long getFailures();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getMaxMicros();
+
+    long getRowsScanned();
+
+    long getRowsReturned();
+
+    /**
+     * @return bytes allocated by the calling threads during the calls, or -1 if the JVM cannot tell
+     */
+    long getAllocatedBytes();
+
+    void reset();
+}
@@ -0,0 +1,177 @@
+package ca.concordia.model;
+
+import ca.concordia.util.Sorts;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+
+/**
+ * Permutation of trip ordinals sorted by duration, longest first, with ties in ordinal (file)
+ * order, so trips longer than a bound are a prefix already in the order duration queries return.
+ * <p>
+ * The positions of each start station's trips, and of each {@link MonthPartitions} month's, are
+ * kept grouped and ascending; since positions follow duration, every group is sorted by duration
+ * as well and percentiles are read off by rank.
+ */
+public class DurationIndex {
+    private static final double MS_PER_MINUTE = 1000.0 * 60.0;
+
+    private final TripStore trips;
+    private final int[] order;
+    private final long[] durationsMs;
+    private final int[] stationOffsets;
+    private final int[] stationPositions;
+    private final YearMonth[] months;
+    private final int[] monthOffsets;
+    private final int[] monthPositions;
+
+    private DurationIndex(TripStore trips, int[] order, long[] durationsMs, TimeIndex timeIndex,
+                          MonthPartitions partitions) {
+        this.trips = trips;
+        this.order = order;
+        this.durationsMs = durationsMs;
+        int n = order.length;
+        int[] partitionOf = new int[n];
+        this.months = new YearMonth[partitions.getMonthCount()];
+        for (int p = 0, position = 0; p < months.length; p++) {
+            months[p] = partitions.getMonth(p);
+            for (int end = position + partitions.getTripCount(p); position < end; position++) {
+                partitionOf[timeIndex.tripAt(position)] = p;
+            }
+        }
+        int[] stationOf = new int[n];
+        int[] monthOf = new int[n];
+        for (int position = 0; position < n; position++) {
+            stationOf[position] = trips.getStartStationId(order[position]);
+            monthOf[position] = partitionOf[order[position]];
+        }
+        int stations = trips.getDictionary().getStationCount();
+        this.stationOffsets = new int[stations + 1];
+        this.stationPositions = group(stationOf, stations, stationOffsets);
+        this.monthOffsets = new int[months.length + 1];
+        this.monthPositions = group(monthOf, months.length, monthOffsets);
+    }
+
+    public static DurationIndex build(TripStore trips, TimeIndex timeIndex, MonthPartitions partitions) {
+        int n = trips.size();
+        long[] durations = new long[n];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            durations[i] = trips.getDurationMs(i);
+            order[i] = i;
+        }
+        Sorts.sortByKeyDescending(durations, order, n);
+        return new DurationIndex(trips, order, durations, timeIndex, partitions);
+    }
+
+    /**
+     * @return an index over {@code trips}, which must hold this index's trips under the same
+     * ordinals followed by new ones; the new trips are sorted and merged in
+     */
+    public DurationIndex append(TripStore trips, TimeIndex timeIndex, MonthPartitions partitions) {
+        int from = order.length;
+        int added = trips.size() - from;
+        long[] deltaDurations = new long[added];
+        int[] deltaOrder = new int[added];
+        for (int i = 0; i < added; i++) {
+            deltaDurations[i] = trips.getDurationMs(from + i);
+            deltaOrder[i] = from + i;
+        }
+        Sorts.sortByKeyDescending(deltaDurations, deltaOrder, added);
+
+        int[] merged = new int[from + added];
+        long[] mergedDurations = new long[from + added];
+        int a = 0;
+        int b = 0;
+        for (int n = 0; n < merged.length; n++) {
+            if (b == added || (a < from && durationsMs[a] >= deltaDurations[b])) {
+                mergedDurations[n] = durationsMs[a];
+                merged[n] = order[a++];
+            } else {
+                mergedDurations[n] = deltaDurations[b];
+                merged[n] = deltaOrder[b++];
+            }
+        }
+        return new DurationIndex(trips, merged, mergedDurations, timeIndex, partitions);
+    }
+
+    /**
+     * @return the trips whose duration in minutes is greater than {@code minMinutes}, longest first
+     */
+    public TripSlice longerThan(float minMinutes) {
+        int lo = 0;
+        int hi = order.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (durationsMs[mid] / MS_PER_MINUTE > minMinutes) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return new TripSlice(trips, order, 0, lo);
+    }
+
+    public DurationPercentiles percentiles() {
+        return percentiles(null, 0, order.length);
+    }
+
+    /**
+     * @return duration percentiles of the trips starting at the station
+     */
+    public DurationPercentiles stationPercentiles(int stationId) {
+        if (stationId < 0 || stationId + 1 >= stationOffsets.length) {
+            return percentiles(null, 0, 0);
+        }
+        return percentiles(stationPositions, stationOffsets[stationId], stationOffsets[stationId + 1]);
+    }
+
+    /**
+     * @return duration percentiles of the trips starting in the local month, as partitioned
+     */
+    public DurationPercentiles monthPercentiles(YearMonth yearMonth) {
+        int month = Arrays.binarySearch(months, yearMonth);
+        if (month < 0) {
+            return percentiles(null, 0, 0);
+        }
+        return percentiles(monthPositions, monthOffsets[month], monthOffsets[month + 1]);
+    }
+
+    /**
+     * Nearest-rank percentiles of the durations at {@code positions[from, to)}, or at positions
+     * {@code [from, to)} themselves when {@code positions} is null. Durations there run longest first.
+     */
+    private DurationPercentiles percentiles(int[] positions, int from, int to) {
+        int n = to - from;
+        if (n == 0) {
+            return new DurationPercentiles(0, -1, -1, -1);
+        }
+        return new DurationPercentiles(n, percentileMinutes(positions, from, n, 50),
+                percentileMinutes(positions, from, n, 95), percentileMinutes(positions, from, n, 99));
+    }
+
+    private double percentileMinutes(int[] positions, int from, int n, int percent) {
+        int rank = (int) ((n * (long) percent + 99) / 100);
+        int at = from + n - Math.max(1, rank);
+        return durationsMs[positions == null ? at : positions[at]] / MS_PER_MINUTE;
+    }
+
+    /**
+     * Lists the positions {@code 0..n-1} grouped by {@code keys[position]}, ascending within each
+     * group, and fills {@code offsets} with the group boundaries.
+     */
+    private static int[] group(int[] keys, int groups, int[] offsets) {
+        for (int key : keys) {
+            offsets[key + 1]++;
+        }
+        for (int g = 0; g < groups; g++) {
+            offsets[g + 1] += offsets[g];
+        }
+        int[] fill = Arrays.copyOf(offsets, groups);
+        int[] positions = new int[keys.length];
+        for (int position = 0; position < keys.length; position++) {
+            positions[fill[keys[position]]++] = position;
+        }
+        return positions;
+    }
+}
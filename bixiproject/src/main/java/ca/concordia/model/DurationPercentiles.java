@@ -0,0 +1,70 @@
+package ca.concordia.model;
+
+import java.util.Arrays;
+
+/**
+ * Nearest-rank trip duration percentiles, in minutes; -1 when there are no trips.
+ */
+public class DurationPercentiles {
+    private final int tripCount;
+    private final double p50;
+    private final double p95;
+    private final double p99;
+
+    public DurationPercentiles(int tripCount, double p50, double p95, double p99) {
+        this.tripCount = tripCount;
+        this.p50 = p50;
+        this.p95 = p95;
+        this.p99 = p99;
+    }
+
+    /**
+     * @return the percentiles of {@code trips}, computed by sorting their durations
+     */
+    public static DurationPercentiles of(Iterable<BixiTrip> trips) {
+        double[] minutes = new double[16];
+        int n = 0;
+        for (BixiTrip trip : trips) {
+            if (n == minutes.length) {
+                minutes = Arrays.copyOf(minutes, n * 2);
+            }
+            minutes[n++] = trip.getDurationMinutes();
+        }
+        if (n == 0) {
+            return new DurationPercentiles(0, -1, -1, -1);
+        }
+        Arrays.sort(minutes, 0, n);
+        return new DurationPercentiles(n, minutes[rank(n, 50) - 1], minutes[rank(n, 95) - 1],
+                minutes[rank(n, 99) - 1]);
+    }
+
+    private static int rank(int n, int percent) {
+        return Math.max(1, (int) ((n * (long) percent + 99) / 100));
+    }
+
+    public int getTripCount() {
+        return tripCount;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public double getP95() {
+        return p95;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    @Override
+    public String toString() {
+        return "DurationPercentiles{" +
+                "tripCount=" + tripCount +
+                ", p50=" + p50 +
+                ", p95=" + p95 +
+                ", p99=" + p99 +
+                '}';
+    }
+}
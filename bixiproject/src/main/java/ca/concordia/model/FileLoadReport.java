@@ -0,0 +1,64 @@
+package ca.concordia.model;
+
+public class FileLoadReport {
+    private final int tag;
+    private final String path;
+    private final int rows;
+    private final long rejectedRows;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    public FileLoadReport(int tag, String path, int rows, long rejectedRows, long bytes, long elapsedNanos) {
+        this.tag = tag;
+        this.path = path;
+        this.rows = rows;
+        this.rejectedRows = rejectedRows;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the id the file's trips are tagged with, used to unload them
+     */
+    public int getTag() {
+        return tag;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public long getRejectedRows() {
+        return rejectedRows;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getBytesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : bytes * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return this report with the rows, rejects, bytes and time of a later load of the same file added
+     */
+    public FileLoadReport plus(FileLoadReport more) {
+        return new FileLoadReport(tag, path, rows + more.rows, rejectedRows + more.rejectedRows,
+                bytes + more.bytes, elapsedNanos + more.elapsedNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d %s - %d rows, %d rejected, %.1f MB/s",
+                tag, path, rows, rejectedRows, getBytesPerSecond() / (1024 * 1024));
+    }
+}
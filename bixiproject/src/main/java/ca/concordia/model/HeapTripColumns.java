@@ -0,0 +1,111 @@
+package ca.concordia.model;
+
+import java.io.IOException;
+
+/**
+ * Trip fields in one primitive array per field.
+ */
+final class HeapTripColumns implements TripColumns {
+    private final long[] startTimeMs;
+    private final long[] endTimeMs;
+    private final int[] startStationId;
+    private final int[] endStationId;
+    private final int[] startArrondissementId;
+    private final int[] endArrondissementId;
+
+    HeapTripColumns(int capacity) {
+        this(new long[capacity], new long[capacity], new int[capacity], new int[capacity], new int[capacity],
+                new int[capacity]);
+    }
+
+    private HeapTripColumns(long[] startTimeMs, long[] endTimeMs, int[] startStationId, int[] endStationId,
+                            int[] startArrondissementId, int[] endArrondissementId) {
+        this.startTimeMs = startTimeMs;
+        this.endTimeMs = endTimeMs;
+        this.startStationId = startStationId;
+        this.endStationId = endStationId;
+        this.startArrondissementId = startArrondissementId;
+        this.endArrondissementId = endArrondissementId;
+    }
+
+    static HeapTripColumns readFrom(TripSnapshot.Reader in, int size) throws IOException {
+        return new HeapTripColumns(in.readLongs(size), in.readLongs(size), in.readInts(size), in.readInts(size),
+                in.readInts(size), in.readInts(size));
+    }
+
+    @Override
+    public int capacity() {
+        return startTimeMs.length;
+    }
+
+    @Override
+    public long startTimeMs(int trip) {
+        return startTimeMs[trip];
+    }
+
+    @Override
+    public long endTimeMs(int trip) {
+        return endTimeMs[trip];
+    }
+
+    @Override
+    public int startStationId(int trip) {
+        return startStationId[trip];
+    }
+
+    @Override
+    public int endStationId(int trip) {
+        return endStationId[trip];
+    }
+
+    @Override
+    public int startArrondissementId(int trip) {
+        return startArrondissementId[trip];
+    }
+
+    @Override
+    public int endArrondissementId(int trip) {
+        return endArrondissementId[trip];
+    }
+
+    @Override
+    public void set(int trip, int startStation, int startArrondissement, int endStation, int endArrondissement,
+                    long startMs, long endMs) {
+        startStationId[trip] = startStation;
+        startArrondissementId[trip] = startArrondissement;
+        endStationId[trip] = endStation;
+        endArrondissementId[trip] = endArrondissement;
+        startTimeMs[trip] = startMs;
+        endTimeMs[trip] = endMs;
+    }
+
+    @Override
+    public TripColumns grow(int capacity, int size) {
+        if (capacity <= capacity()) {
+            return this;
+        }
+        return copyOf(capacity, size);
+    }
+
+    @Override
+    public TripColumns copyOf(int capacity, int size) {
+        HeapTripColumns grown = new HeapTripColumns(capacity);
+        System.arraycopy(startTimeMs, 0, grown.startTimeMs, 0, size);
+        System.arraycopy(endTimeMs, 0, grown.endTimeMs, 0, size);
+        System.arraycopy(startStationId, 0, grown.startStationId, 0, size);
+        System.arraycopy(endStationId, 0, grown.endStationId, 0, size);
+        System.arraycopy(startArrondissementId, 0, grown.startArrondissementId, 0, size);
+        System.arraycopy(endArrondissementId, 0, grown.endArrondissementId, 0, size);
+        return grown;
+    }
+
+    @Override
+    public void writeTo(TripSnapshot.Writer out, int size) throws IOException {
+        out.writeLongs(startTimeMs, size);
+        out.writeLongs(endTimeMs, size);
+        out.writeInts(startStationId, size);
+        out.writeInts(endStationId, size);
+        out.writeInts(startArrondissementId, size);
+        out.writeInts(endArrondissementId, size);
+    }
+}
@@ -0,0 +1,137 @@
+package ca.concordia.model;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+
+/**
+ * The positions of a {@link TimeIndex} split by the local year-month their trips start in. Each
+ * month is a contiguous range of positions with its first and last start time, so month and
+ * time-range lookups only search the months they overlap.
+ */
+public class MonthPartitions {
+    private final TimeIndex timeIndex;
+    private final YearMonth[] months;
+    /** Position range of month {@code p} is {@code [bounds[p], bounds[p + 1])}. */
+    private final int[] bounds;
+    private final long[] minStartMs;
+    private final long[] maxStartMs;
+
+    private MonthPartitions(TimeIndex timeIndex, YearMonth[] months, int[] bounds, long[] minStartMs,
+                            long[] maxStartMs) {
+        this.timeIndex = timeIndex;
+        this.months = months;
+        this.bounds = bounds;
+        this.minStartMs = minStartMs;
+        this.maxStartMs = maxStartMs;
+    }
+
+    /**
+     * Splits the index month by month. Only the first trip of each month is converted to a
+     * calendar date; the month's end is found by searching for the next month's first instant.
+     */
+    public static MonthPartitions build(TripStore trips, TimeIndex timeIndex, ZoneCalendar calendar) {
+        int n = timeIndex.size();
+        YearMonth[] months = new YearMonth[16];
+        int[] bounds = new int[17];
+        long[] minStartMs = new long[16];
+        long[] maxStartMs = new long[16];
+        int count = 0;
+        int position = 0;
+        while (position < n) {
+            long firstMs = trips.getStartTimeMs(timeIndex.tripAt(position));
+            int yearMonth = calendar.yearMonthOf(firstMs);
+            int end = timeIndex.lowerBound(calendar.startOfMonthMs(yearMonth + 1));
+            if (count == months.length) {
+                months = Arrays.copyOf(months, count * 2);
+                bounds = Arrays.copyOf(bounds, count * 2 + 1);
+                minStartMs = Arrays.copyOf(minStartMs, count * 2);
+                maxStartMs = Arrays.copyOf(maxStartMs, count * 2);
+            }
+            months[count] = YearMonth.of(Math.floorDiv(yearMonth, 12), Math.floorMod(yearMonth, 12) + 1);
+            minStartMs[count] = firstMs;
+            maxStartMs[count] = trips.getStartTimeMs(timeIndex.tripAt(end - 1));
+            bounds[++count] = end;
+            position = end;
+        }
+        return new MonthPartitions(timeIndex, Arrays.copyOf(months, count), Arrays.copyOf(bounds, count + 1),
+                Arrays.copyOf(minStartMs, count), Arrays.copyOf(maxStartMs, count));
+    }
+
+    public int getMonthCount() {
+        return months.length;
+    }
+
+    public YearMonth getMonth(int partition) {
+        return months[partition];
+    }
+
+    public int getTripCount(int partition) {
+        return bounds[partition + 1] - bounds[partition];
+    }
+
+    /**
+     * @return the trips starting in {@code month}, ordered by start time
+     */
+    public TripSlice month(YearMonth month) {
+        int p = indexOf(month);
+        return p == -1 ? timeIndex.slice(0, 0) : timeIndex.slice(bounds[p], bounds[p + 1]);
+    }
+
+    /**
+     * @return the trips whose start time lies in {@code [fromMs, toMs]}, ordered by start time
+     */
+    public TripSlice between(long fromMs, long toMs) {
+        return timeIndex.slice(lowerBound(fromMs), upperBound(toMs));
+    }
+
+    /**
+     * @return the first index position whose start time is greater than or equal to {@code timeMs}
+     */
+    public int lowerBound(long timeMs) {
+        int p = firstMonthEndingAtOrAfter(timeMs, false);
+        if (p == months.length) {
+            return timeIndex.size();
+        }
+        if (minStartMs[p] >= timeMs) {
+            return bounds[p];
+        }
+        return timeIndex.lowerBound(timeMs, bounds[p], bounds[p + 1]);
+    }
+
+    /**
+     * @return the first index position whose start time is strictly greater than {@code timeMs}
+     */
+    public int upperBound(long timeMs) {
+        int p = firstMonthEndingAtOrAfter(timeMs, true);
+        if (p == months.length) {
+            return timeIndex.size();
+        }
+        if (minStartMs[p] > timeMs) {
+            return bounds[p];
+        }
+        return timeIndex.upperBound(timeMs, bounds[p], bounds[p + 1]);
+    }
+
+    private int indexOf(YearMonth month) {
+        int p = Arrays.binarySearch(months, month);
+        return p < 0 ? -1 : p;
+    }
+
+    /**
+     * @return the first month whose last start time is at or after {@code timeMs} (strictly after
+     * if {@code strict}), or the month count if there is none
+     */
+    private int firstMonthEndingAtOrAfter(long timeMs, boolean strict) {
+        int lo = 0;
+        int hi = months.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (maxStartMs[mid] < timeMs || (strict && maxStartMs[mid] == timeMs)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
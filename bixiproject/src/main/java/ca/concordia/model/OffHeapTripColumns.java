@@ -0,0 +1,224 @@
+package ca.concordia.model;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Trip fields as fixed 32-byte records in memory-mapped pages of an unlinked temporary file, so
+ * the columns live in the page cache rather than on the Java heap and can exceed {@code -Xmx}.
+ * <p>
+ * Record layout: start time and end time (8 bytes each), then start station, end station,
+ * start arrondissement and end arrondissement ids (4 bytes each). The file is mapped in blocks
+ * of {@value #BLOCK_RECORDS} records; growing maps more blocks and never moves existing ones.
+ * <p>
+ * Columns grown from one another share the file. Its channel is closed once none of them is
+ * reachable, so the disk space of a replaced dataset is released when its last query finishes
+ * rather than when the process exits; mapped blocks do not depend on the channel staying open.
+ */
+final class OffHeapTripColumns implements TripColumns {
+    static final int RECORD_BYTES = 32;
+    private static final int BLOCK_SHIFT = 21;
+    static final int BLOCK_RECORDS = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_RECORDS - 1;
+    private static final long BLOCK_BYTES = (long) BLOCK_RECORDS * RECORD_BYTES;
+
+    private static final int START_TIME = 0;
+    private static final int END_TIME = 8;
+    private static final int START_STATION = 16;
+    private static final int END_STATION = 20;
+    private static final int START_ARRONDISSEMENT = 24;
+    private static final int END_ARRONDISSEMENT = 28;
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final Backing backing;
+    private final ByteBuffer[] blocks;
+
+    OffHeapTripColumns(int capacity) {
+        this(new Backing(createFile()), new ByteBuffer[blocksFor(capacity)]);
+        mapBlocks(blocks, 0);
+    }
+
+    private OffHeapTripColumns(Backing backing, ByteBuffer[] blocks) {
+        this.backing = backing;
+        this.blocks = blocks;
+    }
+
+    /**
+     * The temporary file shared by columns grown from one another.
+     */
+    private static final class Backing {
+        private final FileChannel channel;
+
+        Backing(FileChannel channel) {
+            this.channel = channel;
+            CLEANER.register(this, new Close(channel));
+        }
+    }
+
+    /**
+     * Closes a backing file's channel; must not refer to the {@link Backing} it cleans up after.
+     */
+    private static final class Close implements Runnable {
+        private final FileChannel channel;
+
+        Close(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void run() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // nothing left to release
+            }
+        }
+    }
+
+    private static FileChannel createFile() {
+        try {
+            Path file = Files.createTempFile(directory(), "bixi-trips", ".bin");
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                Files.delete(file);
+            } catch (IOException e) {
+                file.toFile().deleteOnExit();
+            }
+            return channel;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot allocate off-heap trip storage", e);
+        }
+    }
+
+    private static Path directory() {
+        return Path.of(System.getProperty(TripStorage.DIRECTORY_PROPERTY, System.getProperty("java.io.tmpdir")));
+    }
+
+    static OffHeapTripColumns readFrom(TripSnapshot.Reader in, int size) throws IOException {
+        OffHeapTripColumns columns = new OffHeapTripColumns(size);
+        LongBuffer startTimes = in.mapLongs(size);
+        LongBuffer endTimes = in.mapLongs(size);
+        IntBuffer startStations = in.mapInts(size);
+        IntBuffer endStations = in.mapInts(size);
+        IntBuffer startArrondissements = in.mapInts(size);
+        IntBuffer endArrondissements = in.mapInts(size);
+        for (int trip = 0; trip < size; trip++) {
+            columns.set(trip, startStations.get(trip), startArrondissements.get(trip), endStations.get(trip),
+                    endArrondissements.get(trip), startTimes.get(trip), endTimes.get(trip));
+        }
+        return columns;
+    }
+
+    @Override
+    public int capacity() {
+        return (int) Math.min(Integer.MAX_VALUE, (long) blocks.length << BLOCK_SHIFT);
+    }
+
+    @Override
+    public long startTimeMs(int trip) {
+        return blocks[trip >>> BLOCK_SHIFT].getLong(offset(trip) + START_TIME);
+    }
+
+    @Override
+    public long endTimeMs(int trip) {
+        return blocks[trip >>> BLOCK_SHIFT].getLong(offset(trip) + END_TIME);
+    }
+
+    @Override
+    public int startStationId(int trip) {
+        return blocks[trip >>> BLOCK_SHIFT].getInt(offset(trip) + START_STATION);
+    }
+
+    @Override
+    public int endStationId(int trip) {
+        return blocks[trip >>> BLOCK_SHIFT].getInt(offset(trip) + END_STATION);
+    }
+
+    @Override
+    public int startArrondissementId(int trip) {
+        return blocks[trip >>> BLOCK_SHIFT].getInt(offset(trip) + START_ARRONDISSEMENT);
+    }
+
+    @Override
+    public int endArrondissementId(int trip) {
+        return blocks[trip >>> BLOCK_SHIFT].getInt(offset(trip) + END_ARRONDISSEMENT);
+    }
+
+    @Override
+    public void set(int trip, int startStation, int startArrondissement, int endStation, int endArrondissement,
+                    long startMs, long endMs) {
+        ByteBuffer block = blocks[trip >>> BLOCK_SHIFT];
+        int offset = offset(trip);
+        block.putLong(offset + START_TIME, startMs);
+        block.putLong(offset + END_TIME, endMs);
+        block.putInt(offset + START_STATION, startStation);
+        block.putInt(offset + END_STATION, endStation);
+        block.putInt(offset + START_ARRONDISSEMENT, startArrondissement);
+        block.putInt(offset + END_ARRONDISSEMENT, endArrondissement);
+    }
+
+    @Override
+    public TripColumns grow(int capacity, int size) {
+        int needed = blocksFor(capacity);
+        if (needed <= blocks.length) {
+            return this;
+        }
+        ByteBuffer[] grown = Arrays.copyOf(blocks, needed);
+        mapBlocks(grown, blocks.length);
+        return new OffHeapTripColumns(backing, grown);
+    }
+
+    @Override
+    public TripColumns copyOf(int capacity, int size) {
+        ByteBuffer[] copied = new ByteBuffer[blocksFor(capacity)];
+        OffHeapTripColumns copy = new OffHeapTripColumns(new Backing(createFile()), copied);
+        copy.mapBlocks(copied, 0);
+        for (int block = 0; block < copied.length && block < blocks.length; block++) {
+            copied[block].put(0, blocks[block], 0, (int) BLOCK_BYTES);
+        }
+        return copy;
+    }
+
+    private static int blocksFor(int capacity) {
+        return (int) (((long) capacity + BLOCK_MASK) >>> BLOCK_SHIFT);
+    }
+
+    /**
+     * Maps the blocks of {@code into} from index {@code from} on, extending the file as needed.
+     */
+    private void mapBlocks(ByteBuffer[] into, int from) {
+        try {
+            for (int block = from; block < into.length; block++) {
+                into[block] = backing.channel.map(FileChannel.MapMode.READ_WRITE, block * BLOCK_BYTES, BLOCK_BYTES)
+                        .order(ByteOrder.nativeOrder());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot grow off-heap trip storage", e);
+        }
+    }
+
+    @Override
+    public void writeTo(TripSnapshot.Writer out, int size) throws IOException {
+        out.writeLongs(size, this::startTimeMs);
+        out.writeLongs(size, this::endTimeMs);
+        out.writeInts(size, this::startStationId);
+        out.writeInts(size, this::endStationId);
+        out.writeInts(size, this::startArrondissementId);
+        out.writeInts(size, this::endArrondissementId);
+    }
+
+    private static int offset(int trip) {
+        return (trip & BLOCK_MASK) * RECORD_BYTES;
+    }
+}
@@ -0,0 +1,306 @@
+package ca.concordia.model;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Trip counts pre-aggregated by local calendar day, built once after loading.
+ * <p>
+ * For every day between the first and last trip it keeps the number of trips per start hour,
+ * and for every station used that day the number of trips starting and ending there (a trip
+ * belongs to the day it starts on). Station counts are stored sparsely, one run per day
+ * sorted by station id.
+ */
+public class RollupCube {
+    private final int dayCount;
+    private final long[] dayStartMs;
+    private final int[] yearMonth;
+    private final int[] dayTotals;
+    private final int[] hourly;
+    private final int[] stationOffsets;
+    private final int[] stationIds;
+    private final int[] startCounts;
+    private final int[] endCounts;
+
+    private RollupCube(int dayCount, long[] dayStartMs, int[] yearMonth, int[] dayTotals, int[] hourly,
+                       StationRuns runs) {
+        this(dayCount, dayStartMs, yearMonth, dayTotals, hourly, runs.offsets, runs.ids, runs.starts, runs.ends);
+    }
+
+    private RollupCube(int dayCount, long[] dayStartMs, int[] yearMonth, int[] dayTotals, int[] hourly,
+                       int[] stationOffsets, int[] stationIds, int[] startCounts, int[] endCounts) {
+        this.dayCount = dayCount;
+        this.dayStartMs = dayStartMs;
+        this.yearMonth = yearMonth;
+        this.dayTotals = dayTotals;
+        this.hourly = hourly;
+        this.stationOffsets = stationOffsets;
+        this.stationIds = stationIds;
+        this.startCounts = startCounts;
+        this.endCounts = endCounts;
+    }
+
+    /**
+     * Builds the cube in one pass over the trips in start-time order. The local day and hour are
+     * derived from the zone offset, which is only looked up again when the walk crosses an hour
+     * boundary or a zone transition.
+     */
+    public static RollupCube build(TripStore trips, TimeIndex timeIndex, ZoneCalendar calendar) {
+        int n = timeIndex.size();
+        int stations = trips.getDictionary().getStationCount();
+        if (n == 0) {
+            return new RollupCube(0, new long[1], new int[0], new int[0], new int[0], new StationRuns(0, stations));
+        }
+
+        long firstEpochDay = calendar.epochDayOf(trips.getStartTimeMs(timeIndex.tripAt(0)));
+        long lastEpochDay = calendar.epochDayOf(trips.getStartTimeMs(timeIndex.tripAt(n - 1)));
+        int dayCount = Math.toIntExact(lastEpochDay - firstEpochDay + 1);
+
+        long[] dayStartMs = new long[dayCount + 1];
+        int[] yearMonth = new int[dayCount];
+        fillCalendar(firstEpochDay, calendar, dayStartMs, yearMonth);
+
+        int[] dayTotals = new int[dayCount];
+        int[] hourly = new int[dayCount * 24];
+        StationRuns runs = new StationRuns(dayCount, stations);
+        int currentDay = 0;
+        int currentHour = 0;
+        long windowEnd = Long.MIN_VALUE;
+        for (int position = 0; position < n; position++) {
+            int trip = timeIndex.tripAt(position);
+            long t = trips.getStartTimeMs(trip);
+            if (t >= windowEnd) {
+                long local = calendar.toLocalMs(t);
+                int day = (int) (Math.floorDiv(local, ZoneCalendar.DAY_MS) - firstEpochDay);
+                currentHour = (int) (Math.floorMod(local, ZoneCalendar.DAY_MS) / ZoneCalendar.HOUR_MS);
+                windowEnd = Math.min(t + ZoneCalendar.HOUR_MS - Math.floorMod(local, ZoneCalendar.HOUR_MS),
+                        calendar.nextTransitionMs(t));
+                while (currentDay < day) {
+                    runs.closeDay(currentDay++);
+                }
+            }
+            dayTotals[currentDay]++;
+            hourly[currentDay * 24 + currentHour]++;
+            runs.dayStarts[trips.getStartStationId(trip)]++;
+            runs.dayEnds[trips.getEndStationId(trip)]++;
+        }
+        runs.closeDay(currentDay);
+
+        return new RollupCube(dayCount, dayStartMs, yearMonth, dayTotals, hourly, runs);
+    }
+
+    /**
+     * Returns a cube counting the trips of both cubes, which must have been built in the zone of {@code calendar}.
+     * Day rows are summed and station runs merged, so the cost depends on the number of days and
+     * stations, not trips. Neither cube is modified.
+     */
+    public RollupCube append(RollupCube delta, ZoneCalendar calendar) {
+        if (delta.dayCount == 0) {
+            return this;
+        }
+        if (dayCount == 0) {
+            return delta;
+        }
+        long firstEpochDay = Math.min(epochDay(0, calendar), delta.epochDay(0, calendar));
+        long lastEpochDay = Math.max(epochDay(dayCount - 1, calendar), delta.epochDay(delta.dayCount - 1, calendar));
+        int days = Math.toIntExact(lastEpochDay - firstEpochDay + 1);
+        int shift = (int) (epochDay(0, calendar) - firstEpochDay);
+        int deltaShift = (int) (delta.epochDay(0, calendar) - firstEpochDay);
+
+        long[] dayStartMs = new long[days + 1];
+        int[] yearMonth = new int[days];
+        fillCalendar(firstEpochDay, calendar, dayStartMs, yearMonth);
+        int[] dayTotals = new int[days];
+        int[] hourly = new int[days * 24];
+        addDays(this, shift, dayTotals, hourly);
+        addDays(delta, deltaShift, dayTotals, hourly);
+
+        StationRuns runs = new StationRuns(days, Math.max(stationBound(), delta.stationBound()));
+        for (int day = 0; day < days; day++) {
+            runs.add(this, day - shift);
+            runs.add(delta, day - deltaShift);
+            runs.closeDay(day);
+        }
+        return new RollupCube(days, dayStartMs, yearMonth, dayTotals, hourly, runs);
+    }
+
+    private static void fillCalendar(long firstEpochDay, ZoneCalendar calendar, long[] dayStartMs, int[] yearMonth) {
+        for (int day = 0; day < dayStartMs.length; day++) {
+            dayStartMs[day] = calendar.startOfDayMs(firstEpochDay + day);
+            if (day < yearMonth.length) {
+                yearMonth[day] = ZoneCalendar.yearMonth(firstEpochDay + day);
+            }
+        }
+    }
+
+    private static void addDays(RollupCube cube, int shift, int[] dayTotals, int[] hourly) {
+        for (int day = 0; day < cube.dayCount; day++) {
+            dayTotals[day + shift] += cube.dayTotals[day];
+        }
+        for (int i = 0; i < cube.dayCount * 24; i++) {
+            hourly[i + shift * 24] += cube.hourly[i];
+        }
+    }
+
+    private long epochDay(int day, ZoneCalendar calendar) {
+        return calendar.epochDayOf(dayStartMs[day]);
+    }
+
+    /**
+     * @return one more than the largest station id with a count in this cube
+     */
+    private int stationBound() {
+        int bound = 0;
+        for (int entry = 0; entry < stationOffsets[dayCount]; entry++) {
+            bound = Math.max(bound, stationIds[entry] + 1);
+        }
+        return bound;
+    }
+
+    void writeTo(TripSnapshot.Writer out) throws IOException {
+        int entries = stationOffsets[dayCount];
+        out.writeInt(dayCount);
+        out.writeInt(entries);
+        out.writeLongs(dayStartMs, dayCount + 1);
+        out.writeInts(yearMonth, dayCount);
+        out.writeInts(dayTotals, dayCount);
+        out.writeInts(hourly, dayCount * 24);
+        out.writeInts(stationOffsets, dayCount + 1);
+        out.writeInts(stationIds, entries);
+        out.writeInts(startCounts, entries);
+        out.writeInts(endCounts, entries);
+    }
+
+    static RollupCube readFrom(TripSnapshot.Reader in) throws IOException {
+        int dayCount = in.readInt();
+        int entries = in.readInt();
+        return new RollupCube(dayCount, in.readLongs(dayCount + 1), in.readInts(dayCount), in.readInts(dayCount),
+                in.readInts(dayCount * 24), in.readInts(dayCount + 1), in.readInts(entries), in.readInts(entries),
+                in.readInts(entries));
+    }
+
+    public int getDayCount() {
+        return dayCount;
+    }
+
+    /**
+     * @return the instant local day {@code day} starts at; {@code day == getDayCount()} gives the end of the last day
+     */
+    public long getDayStartMs(int day) {
+        return dayStartMs[day];
+    }
+
+    public int getYear(int day) {
+        return yearMonth[day] / 12;
+    }
+
+    public int getMonth(int day) {
+        return yearMonth[day] % 12 + 1;
+    }
+
+    public int getTripCount(int day) {
+        return dayTotals[day];
+    }
+
+    public int getTripCount(int day, int hour) {
+        return hourly[day * 24 + hour];
+    }
+
+    /**
+     * @return the first day boundary at or after {@code timeMs}, in {@code [0, getDayCount() + 1]}
+     */
+    public int firstDayStartingAtOrAfter(long timeMs) {
+        int lo = 0;
+        int hi = dayCount + 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (dayStartMs[mid] < timeMs) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return the number of trips starting in the given month of any year
+     */
+    public int countTripsInMonth(int month) {
+        int total = 0;
+        for (int day = 0; day < dayCount; day++) {
+            if (getMonth(day) == month) {
+                total += dayTotals[day];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Adds the per-station trip counts of days {@code [fromDay, toDay)} into the given arrays,
+     * indexed by station id. Either array may be null when that side is not needed.
+     */
+    public void addStationCounts(int fromDay, int toDay, int[] starts, int[] ends) {
+        for (int entry = stationOffsets[fromDay]; entry < stationOffsets[toDay]; entry++) {
+            if (starts != null) {
+                starts[stationIds[entry]] += startCounts[entry];
+            }
+            if (ends != null) {
+                ends[stationIds[entry]] += endCounts[entry];
+            }
+        }
+    }
+
+    /**
+     * Sparse per-day station counts under construction. The dense scratch arrays collect the
+     * current day and are drained into the runs when the day is closed.
+     */
+    private static class StationRuns {
+        final int[] offsets;
+        final int[] dayStarts;
+        final int[] dayEnds;
+        int[] ids = new int[1024];
+        int[] starts = new int[1024];
+        int[] ends = new int[1024];
+        int size;
+
+        StationRuns(int dayCount, int stations) {
+            offsets = new int[dayCount + 1];
+            dayStarts = new int[stations];
+            dayEnds = new int[stations];
+        }
+
+        /**
+         * Adds the station counts of {@code cube}'s day {@code day} to the current day, if the cube has that day.
+         */
+        void add(RollupCube cube, int day) {
+            if (day < 0 || day >= cube.dayCount) {
+                return;
+            }
+            for (int entry = cube.stationOffsets[day]; entry < cube.stationOffsets[day + 1]; entry++) {
+                dayStarts[cube.stationIds[entry]] += cube.startCounts[entry];
+                dayEnds[cube.stationIds[entry]] += cube.endCounts[entry];
+            }
+        }
+
+        void closeDay(int day) {
+            for (int station = 0; station < dayStarts.length; station++) {
+                if (dayStarts[station] == 0 && dayEnds[station] == 0) {
+                    continue;
+                }
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                    starts = Arrays.copyOf(starts, size * 2);
+                    ends = Arrays.copyOf(ends, size * 2);
+                }
+                ids[size] = station;
+                starts[size] = dayStarts[station];
+                ends[size] = dayEnds[station];
+                size++;
+                dayStarts[station] = 0;
+                dayEnds[station] = 0;
+            }
+            offsets[day + 1] = size;
+        }
+    }
+}
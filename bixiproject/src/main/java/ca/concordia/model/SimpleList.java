@@ -17,6 +17,12 @@ public class SimpleList<T> implements Iterable<T> {
         data[size++] = value;
     }
 
+    public void addAll(SimpleList<? extends T> other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.data, 0, data, size, other.size);
+        size += other.size;
+    }
+
     @SuppressWarnings("unchecked")
     public T get(int index) {
         if (index < 0 || index >= size) {
@@ -0,0 +1,215 @@
+package ca.concordia.model;
+
+import java.util.Arrays;
+
+/**
+ * Assigns dense ids to station and arrondissement names. Names are matched case-insensitively
+ * (the same way {@link String#equalsIgnoreCase} does); the first spelling seen is kept for display.
+ * Station coordinates are stored once per station, from its first occurrence.
+ */
+public class StationDictionary {
+    private final NameTable stations;
+    private final NameTable arrondissements;
+    private double[] latitudes;
+    private double[] longitudes;
+
+    public StationDictionary() {
+        stations = new NameTable();
+        arrondissements = new NameTable();
+        latitudes = new double[64];
+        longitudes = new double[64];
+    }
+
+    private StationDictionary(StationDictionary other) {
+        stations = new NameTable(other.stations);
+        arrondissements = new NameTable(other.arrondissements);
+        latitudes = other.latitudes.clone();
+        longitudes = other.longitudes.clone();
+    }
+
+    /**
+     * @return an independent copy; adding names to either dictionary does not affect the other
+     */
+    public StationDictionary copy() {
+        return new StationDictionary(this);
+    }
+
+    public int stationId(String name, double latitude, double longitude) {
+        int before = stations.size();
+        int id = stations.idOf(name);
+        if (id == before) {
+            if (id == latitudes.length) {
+                latitudes = grow(latitudes);
+                longitudes = grow(longitudes);
+            }
+            latitudes[id] = latitude;
+            longitudes[id] = longitude;
+        }
+        return id;
+    }
+
+    public int arrondissementId(String name) {
+        return arrondissements.idOf(name);
+    }
+
+    /**
+     * @return the id of the station matching {@code name} ignoring case, or -1 if unknown
+     */
+    public int findStation(String name) {
+        return stations.find(name);
+    }
+
+    public int findArrondissement(String name) {
+        return arrondissements.find(name);
+    }
+
+    public int getStationCount() {
+        return stations.size();
+    }
+
+    public String getStationName(int stationId) {
+        return stations.name(stationId);
+    }
+
+    public double getStationLatitude(int stationId) {
+        return latitudes[stationId];
+    }
+
+    public double getStationLongitude(int stationId) {
+        return longitudes[stationId];
+    }
+
+    public int getArrondissementCount() {
+        return arrondissements.size();
+    }
+
+    public String getArrondissementName(int arrondissementId) {
+        return arrondissements.name(arrondissementId);
+    }
+
+    /**
+     * Adds every station of {@code other} to this dictionary.
+     * @return a table translating {@code other}'s station ids into ids of this dictionary
+     */
+    public int[] importStations(StationDictionary other) {
+        int[] map = new int[other.getStationCount()];
+        for (int id = 0; id < map.length; id++) {
+            map[id] = stationId(other.getStationName(id), other.latitudes[id], other.longitudes[id]);
+        }
+        return map;
+    }
+
+    /**
+     * Adds every arrondissement of {@code other} to this dictionary.
+     * @return a table translating {@code other}'s arrondissement ids into ids of this dictionary
+     */
+    public int[] importArrondissements(StationDictionary other) {
+        int[] map = new int[other.getArrondissementCount()];
+        for (int id = 0; id < map.length; id++) {
+            map[id] = arrondissementId(other.getArrondissementName(id));
+        }
+        return map;
+    }
+
+    private static double[] grow(double[] values) {
+        double[] next = new double[values.length * 2];
+        System.arraycopy(values, 0, next, 0, values.length);
+        return next;
+    }
+
+    /**
+     * Case-insensitive name to dense id table (open addressing). Hashes are computed over the
+     * case-folded characters so that lookups never allocate a normalized copy of the name.
+     */
+    private static class NameTable {
+        private int[] slots = new int[64];
+        private int[] hashes = new int[64];
+        private String[] names = new String[32];
+        private int size;
+
+        NameTable() {
+            Arrays.fill(slots, -1);
+        }
+
+        NameTable(NameTable other) {
+            slots = other.slots.clone();
+            hashes = other.hashes.clone();
+            names = other.names.clone();
+            size = other.size;
+        }
+
+        int size() {
+            return size;
+        }
+
+        String name(int id) {
+            if (id < 0 || id >= size) {
+                throw new IndexOutOfBoundsException("Id: " + id);
+            }
+            return names[id];
+        }
+
+        int find(String name) {
+            int hash = foldedHash(name);
+            int mask = slots.length - 1;
+            for (int slot = hash & mask; slots[slot] != -1; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && names[slots[slot]].equalsIgnoreCase(name)) {
+                    return slots[slot];
+                }
+            }
+            return -1;
+        }
+
+        int idOf(String name) {
+            int hash = foldedHash(name);
+            int mask = slots.length - 1;
+            int slot = hash & mask;
+            for (; slots[slot] != -1; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && names[slots[slot]].equalsIgnoreCase(name)) {
+                    return slots[slot];
+                }
+            }
+            if (size == names.length) {
+                String[] next = new String[size * 2];
+                System.arraycopy(names, 0, next, 0, size);
+                names = next;
+            }
+            names[size] = name;
+            slots[slot] = size;
+            hashes[slot] = hash;
+            size++;
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+            return size - 1;
+        }
+
+        private void rehash() {
+            int[] oldSlots = slots;
+            int[] oldHashes = hashes;
+            slots = new int[oldSlots.length * 2];
+            hashes = new int[oldSlots.length * 2];
+            Arrays.fill(slots, -1);
+            int mask = slots.length - 1;
+            for (int i = 0; i < oldSlots.length; i++) {
+                if (oldSlots[i] == -1) {
+                    continue;
+                }
+                int slot = oldHashes[i] & mask;
+                while (slots[slot] != -1) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = oldSlots[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+
+        private static int foldedHash(String name) {
+            int hash = 0;
+            for (int i = 0; i < name.length(); i++) {
+                hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+            }
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package ca.concordia.model;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Inverted index from station id to the ordinals of the trips starting or ending there.
+ * Posting lists are stored back to back in one array per side, each list sorted by ordinal.
+ * <p>
+ * Appended trips go into a new segment covering only their ordinals, so each station's list is
+ * the concatenation of its lists in every segment. Segments are merged as they pile up, smallest
+ * last, keeping their number logarithmic in the number of trips.
+ */
+public class StationIndex {
+    private final Segment[] segments;
+
+    private StationIndex(Segment... segments) {
+        this.segments = segments;
+    }
+
+    public static StationIndex build(TripStore trips) {
+        return new StationIndex(Segment.build(trips, 0, trips.size()));
+    }
+
+    /**
+     * @return an index that also covers the trips of {@code trips} with ordinals in {@code [from, to)},
+     * which must all be greater than the ordinals already indexed; this index is left as it was
+     */
+    public StationIndex append(TripStore trips, int from, int to) {
+        if (from == to) {
+            return this;
+        }
+        Segment[] next = Arrays.copyOf(segments, segments.length + 1);
+        int count = next.length;
+        next[count - 1] = Segment.build(trips, from, to);
+        while (count > 1 && next[count - 1].size() * 2L >= next[count - 2].size()) {
+            next[count - 2] = Segment.concat(next[count - 2], next[count - 1]);
+            count--;
+        }
+        return new StationIndex(Arrays.copyOf(next, count));
+    }
+
+    void writeTo(TripSnapshot.Writer out) throws IOException {
+        Segment all = segments[0];
+        for (int i = 1; i < segments.length; i++) {
+            all = Segment.concat(all, segments[i]);
+        }
+        out.writeInt(all.startOffsets.length);
+        out.writeInt(all.startPostings.length);
+        out.writeInts(all.startOffsets, all.startOffsets.length);
+        out.writeInts(all.startPostings, all.startPostings.length);
+        out.writeInts(all.endOffsets, all.endOffsets.length);
+        out.writeInts(all.endPostings, all.endPostings.length);
+    }
+
+    static StationIndex readFrom(TripSnapshot.Reader in) throws IOException {
+        int offsets = in.readInt();
+        int postings = in.readInt();
+        return new StationIndex(
+                new Segment(in.readInts(offsets), in.readInts(postings), in.readInts(offsets), in.readInts(postings)));
+    }
+
+    public int countStarts(int stationId) {
+        int count = 0;
+        for (Segment segment : segments) {
+            count += Segment.length(segment.startOffsets, stationId);
+        }
+        return count;
+    }
+
+    public int countEnds(int stationId) {
+        int count = 0;
+        for (Segment segment : segments) {
+            count += Segment.length(segment.endOffsets, stationId);
+        }
+        return count;
+    }
+
+    /**
+     * @return ordinals of the trips starting at the station, ascending
+     */
+    public int[] tripsStartingAt(int stationId) {
+        int[] ordinals = new int[countStarts(stationId)];
+        int n = 0;
+        for (Segment segment : segments) {
+            n = Segment.copyList(segment.startOffsets, segment.startPostings, stationId, ordinals, n);
+        }
+        return ordinals;
+    }
+
+    /**
+     * @return ordinals of the trips ending at the station, ascending
+     */
+    public int[] tripsEndingAt(int stationId) {
+        int[] ordinals = new int[countEnds(stationId)];
+        int n = 0;
+        for (Segment segment : segments) {
+            n = Segment.copyList(segment.endOffsets, segment.endPostings, stationId, ordinals, n);
+        }
+        return ordinals;
+    }
+
+    /**
+     * @return ordinals of the trips starting or ending at the station, ascending and without duplicates
+     */
+    public int[] tripsAt(int stationId) {
+        int[] starts = tripsStartingAt(stationId);
+        int[] ends = tripsEndingAt(stationId);
+        int s = 0;
+        int e = 0;
+        int[] merged = new int[starts.length + ends.length];
+        int n = 0;
+        while (s < starts.length && e < ends.length) {
+            int a = starts[s];
+            int b = ends[e];
+            if (a <= b) {
+                merged[n++] = a;
+                s++;
+                if (a == b) {
+                    e++;
+                }
+            } else {
+                merged[n++] = b;
+                e++;
+            }
+        }
+        while (s < starts.length) {
+            merged[n++] = starts[s++];
+        }
+        while (e < ends.length) {
+            merged[n++] = ends[e++];
+        }
+        return n == merged.length ? merged : Arrays.copyOf(merged, n);
+    }
+
+    /**
+     * Posting lists for one contiguous range of ordinals. A segment built before a station was
+     * first seen simply has no list for it.
+     */
+    private static final class Segment {
+        final int[] startOffsets;
+        final int[] startPostings;
+        final int[] endOffsets;
+        final int[] endPostings;
+
+        Segment(int[] startOffsets, int[] startPostings, int[] endOffsets, int[] endPostings) {
+            this.startOffsets = startOffsets;
+            this.startPostings = startPostings;
+            this.endOffsets = endOffsets;
+            this.endPostings = endPostings;
+        }
+
+        static Segment build(TripStore trips, int from, int to) {
+            int stations = trips.getDictionary().getStationCount();
+            int[] startOffsets = new int[stations + 1];
+            int[] endOffsets = new int[stations + 1];
+            for (int i = from; i < to; i++) {
+                startOffsets[trips.getStartStationId(i) + 1]++;
+                endOffsets[trips.getEndStationId(i) + 1]++;
+            }
+            for (int id = 0; id < stations; id++) {
+                startOffsets[id + 1] += startOffsets[id];
+                endOffsets[id + 1] += endOffsets[id];
+            }
+
+            int[] startPostings = new int[to - from];
+            int[] endPostings = new int[to - from];
+            int[] startFill = Arrays.copyOf(startOffsets, stations);
+            int[] endFill = Arrays.copyOf(endOffsets, stations);
+            for (int i = from; i < to; i++) {
+                startPostings[startFill[trips.getStartStationId(i)]++] = i;
+                endPostings[endFill[trips.getEndStationId(i)]++] = i;
+            }
+            return new Segment(startOffsets, startPostings, endOffsets, endPostings);
+        }
+
+        /**
+         * @return one segment holding {@code first}'s lists followed by {@code second}'s
+         */
+        static Segment concat(Segment first, Segment second) {
+            int stations = Math.max(first.startOffsets.length, second.startOffsets.length) - 1;
+            int[] startOffsets = new int[stations + 1];
+            int[] endOffsets = new int[stations + 1];
+            int[] startPostings = new int[first.startPostings.length + second.startPostings.length];
+            int[] endPostings = new int[first.endPostings.length + second.endPostings.length];
+            int s = 0;
+            int e = 0;
+            for (int id = 0; id < stations; id++) {
+                startOffsets[id] = s;
+                s = copyList(first.startOffsets, first.startPostings, id, startPostings, s);
+                s = copyList(second.startOffsets, second.startPostings, id, startPostings, s);
+                endOffsets[id] = e;
+                e = copyList(first.endOffsets, first.endPostings, id, endPostings, e);
+                e = copyList(second.endOffsets, second.endPostings, id, endPostings, e);
+            }
+            startOffsets[stations] = s;
+            endOffsets[stations] = e;
+            return new Segment(startOffsets, startPostings, endOffsets, endPostings);
+        }
+
+        int size() {
+            return startPostings.length;
+        }
+
+        static int length(int[] offsets, int stationId) {
+            return stationId + 1 < offsets.length ? offsets[stationId + 1] - offsets[stationId] : 0;
+        }
+
+        /**
+         * Copies the station's list into {@code into} at {@code at}.
+         * @return the position after the copied list
+         */
+        static int copyList(int[] offsets, int[] postings, int stationId, int[] into, int at) {
+            int length = length(offsets, stationId);
+            if (length > 0) {
+                System.arraycopy(postings, offsets[stationId], into, at, length);
+            }
+            return at + length;
+        }
+    }
+}
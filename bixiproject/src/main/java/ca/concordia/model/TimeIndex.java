@@ -0,0 +1,182 @@
+package ca.concordia.model;
+
+import ca.concordia.util.Sorts;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Permutation of trip ordinals sorted by start time. Ties keep ordinal (file) order, so a
+ * range of this index is already in the order the start-time queries return.
+ */
+public class TimeIndex {
+    private final TripStore trips;
+    private final int[] order;
+    private final int size;
+    /** Positions of {@link #order} filled so far, shared by every index reading the same array. */
+    private final AtomicInteger written;
+
+    private TimeIndex(TripStore trips, int[] order, int size, AtomicInteger written) {
+        this.trips = trips;
+        this.order = order;
+        this.size = size;
+        this.written = written;
+    }
+
+    public static TimeIndex build(TripStore trips) {
+        return build(trips, 0, trips.size());
+    }
+
+    /**
+     * @return an index over the trips with ordinals in {@code [from, to)} only
+     */
+    public static TimeIndex build(TripStore trips, int from, int to) {
+        int n = to - from;
+        long[] keys = new long[n];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = trips.getStartTimeMs(from + i);
+            order[i] = from + i;
+        }
+        Sorts.sortByKey(keys, order);
+        return new TimeIndex(trips, order, n, new AtomicInteger(n));
+    }
+
+    /**
+     * Returns an index over {@code trips} holding the positions of this index followed, in
+     * start-time order, by those of {@code delta}, whose ordinals must all be greater than this
+     * index's. This index is left as it was.
+     * <p>
+     * When every delta trip starts no earlier than the last indexed one, as with a live feed, the
+     * delta is written past the end of the shared array; otherwise the two runs are merged.
+     */
+    public TimeIndex append(TripStore trips, TimeIndex delta) {
+        int newSize = Math.addExact(size, delta.size);
+        if (delta.size == 0) {
+            return new TimeIndex(trips, order, size, written);
+        }
+        if (size > 0 && startTimeAt(size - 1) > delta.startTimeAt(0)) {
+            return new TimeIndex(trips, merge(delta), newSize, new AtomicInteger(newSize));
+        }
+        int[] target = order;
+        AtomicInteger targetWritten = written;
+        if (!written.compareAndSet(size, newSize) || newSize > order.length) {
+            target = Arrays.copyOf(order, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(newSize, size * 2L)));
+            targetWritten = new AtomicInteger(newSize);
+        }
+        System.arraycopy(delta.order, 0, target, size, delta.size);
+        return new TimeIndex(trips, target, newSize, targetWritten);
+    }
+
+    /**
+     * Merges two start-time runs; on equal times this index's (smaller) ordinals come first.
+     */
+    private int[] merge(TimeIndex delta) {
+        int[] merged = new int[size + delta.size];
+        int a = 0;
+        int b = 0;
+        int n = 0;
+        while (a < size && b < delta.size) {
+            merged[n++] = startTimeAt(a) <= delta.startTimeAt(b) ? order[a++] : delta.order[b++];
+        }
+        while (a < size) {
+            merged[n++] = order[a++];
+        }
+        while (b < delta.size) {
+            merged[n++] = delta.order[b++];
+        }
+        return merged;
+    }
+
+    private long startTimeAt(int position) {
+        return trips.getStartTimeMs(order[position]);
+    }
+
+    void writeTo(TripSnapshot.Writer out) throws IOException {
+        out.writeInt(size);
+        out.writeInts(order, size);
+    }
+
+    static TimeIndex readFrom(TripSnapshot.Reader in, TripStore trips) throws IOException {
+        int size = in.readInt();
+        return new TimeIndex(trips, in.readInts(size), size, new AtomicInteger(size));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the positions of {@code other} hold the same trips in this index
+     */
+    public boolean startsWith(TimeIndex other) {
+        return other.size <= size
+                && (other.order == order || Arrays.equals(order, 0, other.size, other.order, 0, other.size));
+    }
+
+    public int tripAt(int position) {
+        return order[position];
+    }
+
+    /**
+     * @return the first position whose start time is greater than or equal to {@code timeMs}
+     */
+    public int lowerBound(long timeMs) {
+        return lowerBound(timeMs, 0, size);
+    }
+
+    /**
+     * @return the first position in {@code [from, to)} whose start time is greater than or equal
+     * to {@code timeMs}, or {@code to}
+     */
+    public int lowerBound(long timeMs, int from, int to) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (trips.getStartTimeMs(order[mid]) < timeMs) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return the first position whose start time is strictly greater than {@code timeMs}
+     */
+    public int upperBound(long timeMs) {
+        return upperBound(timeMs, 0, size);
+    }
+
+    /**
+     * @return the first position in {@code [from, to)} whose start time is strictly greater than
+     * {@code timeMs}, or {@code to}
+     */
+    public int upperBound(long timeMs, int from, int to) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (trips.getStartTimeMs(order[mid]) <= timeMs) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return the trips whose start time lies in {@code [fromMs, toMs]}, ordered by start time
+     */
+    public TripSlice between(long fromMs, long toMs) {
+        return slice(lowerBound(fromMs), upperBound(toMs));
+    }
+
+    public TripSlice slice(int fromPosition, int toPosition) {
+        return new TripSlice(trips, order, fromPosition, toPosition);
+    }
+}
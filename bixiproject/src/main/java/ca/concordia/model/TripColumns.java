@@ -0,0 +1,39 @@
+package ca.concordia.model;
+
+import java.io.IOException;
+
+/**
+ * Storage behind a {@link TripStore}: one fixed set of fields per trip ordinal. Implementations
+ * are filled by a single builder thread and only read once the store is built.
+ */
+interface TripColumns {
+    int capacity();
+
+    long startTimeMs(int trip);
+
+    long endTimeMs(int trip);
+
+    int startStationId(int trip);
+
+    int endStationId(int trip);
+
+    int startArrondissementId(int trip);
+
+    int endArrondissementId(int trip);
+
+    void set(int trip, int startStation, int startArrondissement, int endStation, int endArrondissement,
+             long startMs, long endMs);
+
+    /**
+     * @return columns with room for at least {@code capacity} trips holding the first {@code size}
+     * trips of these; may be this instance, or share storage with it
+     */
+    TripColumns grow(int capacity, int size);
+
+    /**
+     * @return new columns sharing no storage with these, holding their first {@code size} trips
+     */
+    TripColumns copyOf(int capacity, int size);
+
+    void writeTo(TripSnapshot.Writer out, int size) throws IOException;
+}
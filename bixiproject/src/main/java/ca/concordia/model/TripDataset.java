@@ -0,0 +1,321 @@
+package ca.concordia.model;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A loaded trip store together with the indexes built over it. Instances are never modified;
+ * queries read one dataset from start to finish, and appending produces a new dataset. Only the
+ * duration index of an appended or opened dataset is filled in later, on first use.
+ * <p>
+ * Every trip is tagged with the file it was loaded from: runs of consecutive ordinals share a
+ * tag, and each tag has a {@link FileLoadReport}. Trips loaded without a report carry tag -1.
+ */
+public class TripDataset {
+    public static final int UNTAGGED = -1;
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    /** Unique to this instance, and greater than that of every dataset created before it. */
+    private final long version = VERSIONS.incrementAndGet();
+
+    private final TripStore trips;
+    private final StationIndex stationIndex;
+    private final TimeIndex timeIndex;
+    private final RollupCube cube;
+    private final ZoneCalendar calendar;
+    private final MonthPartitions partitions;
+    private final FileLoadReport[] files;
+    private final int[] runTags;
+    private final int[] runEnds;
+    /** Built on first use from {@link #durationBase}, an index over a prefix of the trips, if any. */
+    private volatile DurationIndex durations;
+    private DurationIndex durationBase;
+
+    TripDataset(TripStore trips, StationIndex stationIndex, TimeIndex timeIndex, RollupCube cube, ZoneCalendar calendar) {
+        this(trips, stationIndex, timeIndex, cube, calendar, MonthPartitions.build(trips, timeIndex, calendar),
+                new FileLoadReport[0],
+                trips.size() == 0 ? new int[0] : new int[]{UNTAGGED},
+                trips.size() == 0 ? new int[0] : new int[]{trips.size()}, null, null);
+    }
+
+    private TripDataset(TripStore trips, StationIndex stationIndex, TimeIndex timeIndex, RollupCube cube,
+                        ZoneCalendar calendar,
+                        MonthPartitions partitions, FileLoadReport[] files, int[] runTags, int[] runEnds,
+                        DurationIndex durations, DurationIndex durationBase) {
+        this.trips = trips;
+        this.stationIndex = stationIndex;
+        this.timeIndex = timeIndex;
+        this.cube = cube;
+        this.calendar = calendar;
+        this.partitions = partitions;
+        this.files = files;
+        this.runTags = runTags;
+        this.runEnds = runEnds;
+        this.durations = durations;
+        this.durationBase = durationBase;
+    }
+
+    public static TripDataset build(TripStore trips, ZoneId zone) {
+        TimeIndex timeIndex = TimeIndex.build(trips);
+        ZoneCalendar calendar = calendarFor(trips, timeIndex, zone);
+        TripDataset dataset = new TripDataset(trips, StationIndex.build(trips), timeIndex,
+                RollupCube.build(trips, timeIndex, calendar), calendar);
+        dataset.getDurationIndex();
+        return dataset;
+    }
+
+    /**
+     * @return a calendar covering the start times of the trips in {@code timeIndex}
+     */
+    static ZoneCalendar calendarFor(TripStore trips, TimeIndex timeIndex, ZoneId zone) {
+        if (timeIndex.size() == 0) {
+            return ZoneCalendar.of(zone, 0, 0);
+        }
+        return ZoneCalendar.of(zone, trips.getStartTimeMs(timeIndex.tripAt(0)),
+                trips.getStartTimeMs(timeIndex.tripAt(timeIndex.size() - 1)));
+    }
+
+    public static TripDataset empty(ZoneId zone) {
+        return build(TripStore.empty(), zone);
+    }
+
+    /**
+     * Returns the same trips attributed to {@code files}: the first file's rows are the first
+     * trips, the next file's rows follow, and so on. The rows must add up to the trip count.
+     */
+    public TripDataset withFiles(SimpleList<FileLoadReport> files) {
+        FileLoadReport[] reports = new FileLoadReport[files.size()];
+        int[] tags = new int[files.size()];
+        int[] ends = new int[files.size()];
+        int end = 0;
+        for (int i = 0; i < reports.length; i++) {
+            reports[i] = files.get(i);
+            tags[i] = reports[i].getTag();
+            end += reports[i].getRows();
+            ends[i] = end;
+        }
+        if (end != trips.size()) {
+            throw new IllegalArgumentException("Files hold " + end + " rows, dataset has " + trips.size());
+        }
+        return new TripDataset(trips, stationIndex, timeIndex, cube, calendar, partitions, reports, tags, ends,
+                durations, latestDurations());
+    }
+
+    /**
+     * Returns a dataset holding these trips followed by those of {@code part}, tagged with
+     * {@code file}. If the file is already loaded, its report is extended instead.
+     * <p>
+     * The dictionary is extended on a copy and every index is extended with the new trips only;
+     * this dataset stays valid and unchanged, so queries already running on it are not affected.
+     */
+    public TripDataset append(TripStore part, FileLoadReport file) {
+        FileLoadReport[] reports = files;
+        int known = indexOfFile(file.getTag());
+        if (known == -1) {
+            reports = Arrays.copyOf(files, files.length + 1);
+            reports[files.length] = file;
+        } else {
+            reports = files.clone();
+            reports[known] = files[known].plus(file);
+        }
+        if (part.size() == 0) {
+            return new TripDataset(trips, stationIndex, timeIndex, cube, calendar, partitions, reports, runTags, runEnds,
+                    durations, latestDurations());
+        }
+
+        StationDictionary dictionary = trips.getDictionary().copy();
+        int[] stationMap = dictionary.importStations(part.getDictionary());
+        int[] arrondissementMap = dictionary.importArrondissements(part.getDictionary());
+        int from = trips.size();
+        TripStore grown = trips.append(part, stationMap, arrondissementMap, dictionary);
+
+        int[] tags = runTags;
+        int[] ends;
+        if (runTags.length > 0 && runTags[runTags.length - 1] == file.getTag()) {
+            ends = runEnds.clone();
+        } else {
+            tags = Arrays.copyOf(runTags, runTags.length + 1);
+            tags[runTags.length] = file.getTag();
+            ends = Arrays.copyOf(runEnds, runEnds.length + 1);
+        }
+        ends[ends.length - 1] = grown.size();
+
+        TimeIndex delta = TimeIndex.build(grown, from, grown.size());
+        TimeIndex grownIndex = timeIndex.append(grown, delta);
+        ZoneCalendar extended = calendar.covering(grown.getStartTimeMs(delta.tripAt(0)),
+                grown.getStartTimeMs(delta.tripAt(delta.size() - 1)));
+        return new TripDataset(grown,
+                stationIndex.append(grown, from, grown.size()),
+                grownIndex,
+                cube.append(RollupCube.build(grown, delta, extended), extended),
+                extended, MonthPartitions.build(grown, grownIndex, extended), reports, tags, ends,
+                null, latestDurations());
+    }
+
+    /**
+     * Returns a dataset without the trips tagged {@code tag}. The remaining trips keep their
+     * order; the dictionary only keeps names they use, and the indexes are rebuilt from them.
+     */
+    public TripDataset without(int tag) {
+        int known = indexOfFile(tag);
+        if (known == -1) {
+            return this;
+        }
+        FileLoadReport[] reports = new FileLoadReport[files.length - 1];
+        System.arraycopy(files, 0, reports, 0, known);
+        System.arraycopy(files, known + 1, reports, known, reports.length - known);
+
+        StationDictionary from = trips.getDictionary();
+        int[] stationMap = new int[from.getStationCount()];
+        int[] arrondissementMap = new int[from.getArrondissementCount()];
+        Arrays.fill(stationMap, -1);
+        Arrays.fill(arrondissementMap, -1);
+        TripStore.Builder kept = new TripStore.Builder(trips.size() - files[known].getRows(), TripStorage.configured());
+        StationDictionary to = kept.getDictionary();
+        int[] tags = new int[runTags.length];
+        int[] ends = new int[runTags.length];
+        int runs = 0;
+        int start = 0;
+        for (int run = 0; run < runTags.length; start = runEnds[run++]) {
+            if (runTags[run] == tag) {
+                continue;
+            }
+            for (int i = start; i < runEnds[run]; i++) {
+                int startStation = mapStation(from, to, stationMap, trips.getStartStationId(i));
+                int startArrondissement = mapArrondissement(from, to, arrondissementMap, trips.getStartArrondissementId(i));
+                int endStation = mapStation(from, to, stationMap, trips.getEndStationId(i));
+                int endArrondissement = mapArrondissement(from, to, arrondissementMap, trips.getEndArrondissementId(i));
+                kept.add(startStation, startArrondissement, endStation, endArrondissement,
+                        trips.getStartTimeMs(i), trips.getEndTimeMs(i));
+            }
+            if (runs > 0 && tags[runs - 1] == runTags[run]) {
+                ends[runs - 1] = kept.size();
+            } else {
+                tags[runs] = runTags[run];
+                ends[runs++] = kept.size();
+            }
+        }
+
+        TripDataset rebuilt = build(kept.build(), calendar.getZone());
+        return new TripDataset(rebuilt.trips, rebuilt.stationIndex, rebuilt.timeIndex, rebuilt.cube, rebuilt.calendar,
+                rebuilt.partitions, reports,
+                Arrays.copyOf(tags, runs), Arrays.copyOf(ends, runs), rebuilt.durations, null);
+    }
+
+    private static int mapStation(StationDictionary from, StationDictionary to, int[] map, int id) {
+        if (map[id] == -1) {
+            map[id] = to.stationId(from.getStationName(id), from.getStationLatitude(id), from.getStationLongitude(id));
+        }
+        return map[id];
+    }
+
+    private static int mapArrondissement(StationDictionary from, StationDictionary to, int[] map, int id) {
+        if (map[id] == -1) {
+            map[id] = to.arrondissementId(from.getArrondissementName(id));
+        }
+        return map[id];
+    }
+
+    /**
+     * @return the duration index if built, otherwise the one it will be built from
+     */
+    private synchronized DurationIndex latestDurations() {
+        return durations != null ? durations : durationBase;
+    }
+
+    private int indexOfFile(int tag) {
+        for (int i = 0; i < files.length; i++) {
+            if (files[i].getTag() == tag) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public TripStore getTrips() {
+        return trips;
+    }
+
+    public StationIndex getStationIndex() {
+        return stationIndex;
+    }
+
+    public TimeIndex getTimeIndex() {
+        return timeIndex;
+    }
+
+    public RollupCube getCube() {
+        return cube;
+    }
+
+    public MonthPartitions getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * @return the duration index, built or merged on first use after an append or snapshot open
+     */
+    public DurationIndex getDurationIndex() {
+        DurationIndex index = durations;
+        if (index == null) {
+            synchronized (this) {
+                index = durations;
+                if (index == null) {
+                    index = durationBase == null
+                            ? DurationIndex.build(trips, timeIndex, partitions)
+                            : durationBase.append(trips, timeIndex, partitions);
+                    durations = index;
+                    durationBase = null;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return the zone the rollup cube's calendar days were computed in
+     */
+    public ZoneId getZone() {
+        return calendar.getZone();
+    }
+
+    /**
+     * @return the calendar of {@link #getZone()}, covering at least the loaded trips' start times
+     */
+    public ZoneCalendar getCalendar() {
+        return calendar;
+    }
+
+    /**
+     * @return the reports of the loaded files, in load order
+     */
+    public SimpleList<FileLoadReport> getFiles() {
+        SimpleList<FileLoadReport> list = new SimpleList<>();
+        for (FileLoadReport file : files) {
+            list.add(file);
+        }
+        return list;
+    }
+
+    /**
+     * @return the tag of the file trip {@code trip} was loaded from, or {@link #UNTAGGED}
+     */
+    public int getFileTag(int trip) {
+        int lo = 0;
+        int hi = runEnds.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (runEnds[mid] <= trip) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return runTags[lo];
+    }
+}
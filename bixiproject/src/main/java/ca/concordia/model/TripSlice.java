@@ -0,0 +1,63 @@
+package ca.concordia.model;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy view over a contiguous range of an ordinal array. {@link BixiTrip} objects are only
+ * created while iterating.
+ */
+public class TripSlice implements Iterable<BixiTrip> {
+    private final TripStore trips;
+    private final int[] ordinals;
+    private final int from;
+    private final int to;
+
+    public TripSlice(TripStore trips, int[] ordinals, int from, int to) {
+        this.trips = trips;
+        this.ordinals = ordinals;
+        this.from = from;
+        this.to = Math.max(from, to);
+    }
+
+    public int size() {
+        return to - from;
+    }
+
+    public BixiTrip get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        return trips.trip(ordinals[from + index]);
+    }
+
+    /**
+     * @return the trips of this slice from position {@code offset}, at most {@code limit} of them;
+     * the page shares this slice's ordinals
+     */
+    public TripSlice page(int offset, int limit) {
+        int pageFrom = from + Math.min(Math.max(0, offset), size());
+        int pageTo = pageFrom + Math.min(Math.max(0, limit), to - pageFrom);
+        return new TripSlice(trips, ordinals, pageFrom, pageTo);
+    }
+
+    @Override
+    public Iterator<BixiTrip> iterator() {
+        return new Iterator<>() {
+            private int cursor = from;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < to;
+            }
+
+            @Override
+            public BixiTrip next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return trips.trip(ordinals[cursor++]);
+            }
+        };
+    }
+}
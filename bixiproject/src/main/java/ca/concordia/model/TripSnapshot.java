@@ -0,0 +1,413 @@
+package ca.concordia.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.time.ZoneId;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary snapshot of a {@link TripDataset}: a fixed header, the zone and string dictionary, the
+ * trip columns and the prebuilt station, time and rollup indexes, all little-endian.
+ * <p>
+ * The header records the format version, the size and modification time of the CSV the data
+ * came from and a CRC-32C of everything after the header. Primitive arrays are 8-byte aligned
+ * and are read back through memory-mapped windows of the file.
+ */
+public final class TripSnapshot {
+    public static final int FORMAT_VERSION = 1;
+    public static final String FILE_SUFFIX = ".snapshot";
+
+    private static final long MAGIC = 0x50414E5349584942L; // "BIXISNAP"
+    private static final int HEADER_SIZE = 64;
+    private static final int WINDOW_BYTES = 1 << 28;
+
+    private TripSnapshot() {
+    }
+
+    /**
+     * @return where the snapshot of {@code source} is kept: next to it, with {@link #FILE_SUFFIX} appended
+     */
+    public static Path pathFor(Path source) {
+        return source.resolveSibling(source.getFileName() + FILE_SUFFIX);
+    }
+
+    /**
+     * Writes {@code dataset} to {@code target}. The file is written under a unique temporary name
+     * and moved into place, so readers never see a partial snapshot and concurrent writers of the
+     * same target do not share a file.
+     *
+     * @param source the CSV the dataset was loaded from, or null if it has none
+     */
+    public static void save(TripDataset dataset, Path target, Path source) throws IOException {
+        long sourceSize = -1;
+        long sourceModifiedMs = -1;
+        if (source != null) {
+            sourceSize = Files.size(source);
+            sourceModifiedMs = Files.getLastModifiedTime(source).toMillis();
+        }
+
+        Path directory = target.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, target.getFileName() + ".", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                Writer out = new Writer(channel);
+                out.writeString(dataset.getZone().getId());
+                writeDictionary(out, dataset.getTrips().getDictionary());
+                dataset.getTrips().writeTo(out);
+                dataset.getStationIndex().writeTo(out);
+                dataset.getTimeIndex().writeTo(out);
+                dataset.getCube().writeTo(out);
+                out.flush();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putLong(MAGIC)
+                        .putInt(FORMAT_VERSION)
+                        .putInt(HEADER_SIZE)
+                        .putLong(sourceSize)
+                        .putLong(sourceModifiedMs)
+                        .putLong(out.written)
+                        .putLong(out.checksum.getValue());
+                header.clear();
+                channel.write(header, 0);
+                channel.force(false);
+            }
+            if (source != null && Files.getFileAttributeView(temp, PosixFileAttributeView.class) != null) {
+                // temporary files are private to their owner; whoever can read the CSV may read its snapshot
+                Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(source));
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if {@code snapshot} exists, has the current format version and was written
+     * from {@code source} as it is now (same size and modification time)
+     */
+    public static boolean isFresh(Path snapshot, Path source) throws IOException {
+        if (!Files.isRegularFile(snapshot) || Files.size(snapshot) < HEADER_SIZE) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel);
+            return header.getLong(0) == MAGIC
+                    && header.getInt(8) == FORMAT_VERSION
+                    && header.getLong(16) == Files.size(source)
+                    && header.getLong(24) == Files.getLastModifiedTime(source).toMillis();
+        }
+    }
+
+    /**
+     * Opens a snapshot after checking its version and checksum. If it was written in a different
+     * zone than {@code zone}, the rollup cube is rebuilt instead of read.
+     */
+    public static TripDataset open(Path snapshot, ZoneId zone) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a trip snapshot: " + snapshot);
+            }
+            ByteBuffer header = readHeader(channel);
+            if (header.getLong(0) != MAGIC) {
+                throw new IOException("Not a trip snapshot: " + snapshot);
+            }
+            int version = header.getInt(8);
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + snapshot);
+            }
+            long payload = header.getLong(32);
+            if (payload != channel.size() - HEADER_SIZE) {
+                throw new IOException("Truncated snapshot: " + snapshot);
+            }
+            if (checksum(channel, payload) != header.getLong(40)) {
+                throw new IOException("Snapshot checksum mismatch: " + snapshot);
+            }
+
+            Reader in = new Reader(channel);
+            ZoneId savedZone = ZoneId.of(in.readString());
+            StationDictionary dictionary = readDictionary(in);
+            TripStore trips = TripStore.readFrom(in, dictionary, TripStorage.configured());
+            StationIndex stationIndex = StationIndex.readFrom(in);
+            TimeIndex timeIndex = TimeIndex.readFrom(in, trips);
+            ZoneCalendar calendar = TripDataset.calendarFor(trips, timeIndex, zone);
+            RollupCube cube = savedZone.equals(zone)
+                    ? RollupCube.readFrom(in)
+                    : RollupCube.build(trips, timeIndex, calendar);
+            return new TripDataset(trips, stationIndex, timeIndex, cube, calendar);
+        }
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Unexpected end of snapshot");
+            }
+        }
+        return header;
+    }
+
+    private static long checksum(FileChannel channel, long payload) throws IOException {
+        CRC32C crc = new CRC32C();
+        for (long offset = 0; offset < payload; offset += WINDOW_BYTES) {
+            long length = Math.min(WINDOW_BYTES, payload - offset);
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + offset, length));
+        }
+        return crc.getValue();
+    }
+
+    private static void writeDictionary(Writer out, StationDictionary dictionary) throws IOException {
+        out.writeInt(dictionary.getStationCount());
+        for (int id = 0; id < dictionary.getStationCount(); id++) {
+            out.writeString(dictionary.getStationName(id));
+            out.writeDouble(dictionary.getStationLatitude(id));
+            out.writeDouble(dictionary.getStationLongitude(id));
+        }
+        out.writeInt(dictionary.getArrondissementCount());
+        for (int id = 0; id < dictionary.getArrondissementCount(); id++) {
+            out.writeString(dictionary.getArrondissementName(id));
+        }
+    }
+
+    /**
+     * Names were unique ignoring case when saved, so re-adding them in id order gives back the same ids.
+     */
+    private static StationDictionary readDictionary(Reader in) throws IOException {
+        StationDictionary dictionary = new StationDictionary();
+        int stations = in.readInt();
+        for (int id = 0; id < stations; id++) {
+            String name = in.readString();
+            double latitude = in.readDouble();
+            double longitude = in.readDouble();
+            dictionary.stationId(name, latitude, longitude);
+        }
+        int arrondissements = in.readInt();
+        for (int id = 0; id < arrondissements; id++) {
+            dictionary.arrondissementId(in.readString());
+        }
+        if (dictionary.getStationCount() != stations || dictionary.getArrondissementCount() != arrondissements) {
+            throw new IOException("Snapshot dictionary has duplicate names");
+        }
+        return dictionary;
+    }
+
+    /**
+     * Sequential writer of the snapshot payload; tracks the byte count and checksum as it flushes.
+     */
+    static final class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32C checksum = new CRC32C();
+        private long written;
+
+        private Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeInt(int value) throws IOException {
+            require(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void writeLong(long value) throws IOException {
+            require(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void writeDouble(double value) throws IOException {
+            require(Double.BYTES);
+            buffer.putDouble(value);
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            for (int i = 0; i < bytes.length; ) {
+                require(1);
+                int take = Math.min(buffer.remaining(), bytes.length - i);
+                buffer.put(bytes, i, take);
+                i += take;
+            }
+        }
+
+        /**
+         * Writes the first {@code count} values, aligned to 8 bytes.
+         */
+        void writeInts(int[] values, int count) throws IOException {
+            align();
+            for (int i = 0; i < count; ) {
+                require(Integer.BYTES);
+                int take = Math.min(buffer.remaining() / Integer.BYTES, count - i);
+                buffer.asIntBuffer().put(values, i, take);
+                buffer.position(buffer.position() + take * Integer.BYTES);
+                i += take;
+            }
+        }
+
+        /**
+         * Writes the first {@code count} values, aligned to 8 bytes.
+         */
+        void writeLongs(long[] values, int count) throws IOException {
+            align();
+            for (int i = 0; i < count; ) {
+                require(Long.BYTES);
+                int take = Math.min(buffer.remaining() / Long.BYTES, count - i);
+                buffer.asLongBuffer().put(values, i, take);
+                buffer.position(buffer.position() + take * Long.BYTES);
+                i += take;
+            }
+        }
+
+        void writeInts(int count, IntUnaryOperator values) throws IOException {
+            align();
+            for (int i = 0; i < count; i++) {
+                require(Integer.BYTES);
+                buffer.putInt(values.applyAsInt(i));
+            }
+        }
+
+        void writeLongs(int count, IntToLongFunction values) throws IOException {
+            align();
+            for (int i = 0; i < count; i++) {
+                require(Long.BYTES);
+                buffer.putLong(values.applyAsLong(i));
+            }
+        }
+
+        private void align() throws IOException {
+            while ((written + buffer.position()) % Long.BYTES != 0) {
+                require(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            checksum.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer, HEADER_SIZE + written);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Sequential reader of the snapshot payload. Primitive arrays are copied out of
+     * memory-mapped windows of the file.
+     */
+    static final class Reader {
+        private final FileChannel channel;
+        private final ByteBuffer scratch = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private long position = HEADER_SIZE;
+
+        private Reader(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        int readInt() throws IOException {
+            return read(Integer.BYTES).getInt(0);
+        }
+
+        long readLong() throws IOException {
+            return read(Long.BYTES).getLong(0);
+        }
+
+        double readDouble() throws IOException {
+            return read(Double.BYTES).getDouble(0);
+        }
+
+        String readString() throws IOException {
+            int length = readInt();
+            ByteBuffer bytes = ByteBuffer.allocate(length);
+            fill(bytes);
+            return new String(bytes.array(), StandardCharsets.UTF_8);
+        }
+
+        int[] readInts(int count) throws IOException {
+            align();
+            int[] values = new int[count];
+            int perWindow = WINDOW_BYTES / Integer.BYTES;
+            for (int i = 0; i < count; i += perWindow) {
+                int take = Math.min(perWindow, count - i);
+                IntBuffer window = map((long) take * Integer.BYTES).asIntBuffer();
+                window.get(values, i, take);
+            }
+            return values;
+        }
+
+        long[] readLongs(int count) throws IOException {
+            align();
+            long[] values = new long[count];
+            int perWindow = WINDOW_BYTES / Long.BYTES;
+            for (int i = 0; i < count; i += perWindow) {
+                int take = Math.min(perWindow, count - i);
+                LongBuffer window = map((long) take * Long.BYTES).asLongBuffer();
+                window.get(values, i, take);
+            }
+            return values;
+        }
+
+        /**
+         * @return a read-only view of the next {@code count} values, mapped in one piece
+         */
+        IntBuffer mapInts(int count) throws IOException {
+            align();
+            return map((long) count * Integer.BYTES).asIntBuffer();
+        }
+
+        LongBuffer mapLongs(int count) throws IOException {
+            align();
+            return map((long) count * Long.BYTES).asLongBuffer();
+        }
+
+        private void align() {
+            position = (position + Long.BYTES - 1) & -Long.BYTES;
+        }
+
+        private MappedByteBuffer map(long bytes) throws IOException {
+            if (position + bytes > channel.size()) {
+                throw new IOException("Unexpected end of snapshot");
+            }
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes);
+            window.order(ByteOrder.LITTLE_ENDIAN);
+            position += bytes;
+            return window;
+        }
+
+        private ByteBuffer read(int bytes) throws IOException {
+            scratch.clear().limit(bytes);
+            fill(scratch);
+            return scratch;
+        }
+
+        private void fill(ByteBuffer target) throws IOException {
+            while (target.hasRemaining()) {
+                int n = channel.read(target, position);
+                if (n < 0) {
+                    throw new IOException("Unexpected end of snapshot");
+                }
+                position += n;
+            }
+        }
+    }
+}
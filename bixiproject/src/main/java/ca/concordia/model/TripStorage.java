@@ -0,0 +1,36 @@
+package ca.concordia.model;
+
+import java.io.IOException;
+
+/**
+ * Where the trip columns of a {@link TripStore} are kept. Loads pick the storage named by the
+ * {@value #PROPERTY} system property ({@code heap} or {@code offheap}), defaulting to the heap.
+ */
+public enum TripStorage {
+    /** One primitive array per field on the Java heap. */
+    HEAP,
+    /** Fixed-size records in memory-mapped pages outside the heap, under {@value #DIRECTORY_PROPERTY}. */
+    OFF_HEAP;
+
+    public static final String PROPERTY = "bixi.storage";
+    public static final String DIRECTORY_PROPERTY = "bixi.storage.dir";
+
+    public static TripStorage configured() {
+        String value = System.getProperty(PROPERTY, "heap").trim();
+        if (value.equalsIgnoreCase("offheap") || value.equalsIgnoreCase("off-heap")) {
+            return OFF_HEAP;
+        }
+        if (value.equalsIgnoreCase("heap")) {
+            return HEAP;
+        }
+        throw new IllegalArgumentException("Unknown " + PROPERTY + ": " + value);
+    }
+
+    TripColumns allocate(int capacity) {
+        return this == OFF_HEAP ? new OffHeapTripColumns(capacity) : new HeapTripColumns(capacity);
+    }
+
+    TripColumns readFrom(TripSnapshot.Reader in, int size) throws IOException {
+        return this == OFF_HEAP ? OffHeapTripColumns.readFrom(in, size) : HeapTripColumns.readFrom(in, size);
+    }
+}
@@ -0,0 +1,202 @@
+package ca.concordia.model;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Column-oriented storage for loaded trips. Each trip is an ordinal into fixed-width columns,
+ * kept on or off the heap as chosen by {@link TripStorage}; station and arrondissement names
+ * and station coordinates live in a {@link StationDictionary} and are referenced by id.
+ */
+public class TripStore {
+    private final int size;
+    private final TripColumns columns;
+    private final StationDictionary dictionary;
+    /** Trips written to {@link #columns} so far, shared by every store reading the same columns. */
+    private final AtomicInteger written;
+
+    private TripStore(int size, TripColumns columns, StationDictionary dictionary, AtomicInteger written) {
+        this.size = size;
+        this.columns = columns;
+        this.dictionary = dictionary;
+        this.written = written;
+    }
+
+    public static TripStore empty() {
+        return new Builder().build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getStartTimeMs(int trip) {
+        return columns.startTimeMs(trip);
+    }
+
+    public long getEndTimeMs(int trip) {
+        return columns.endTimeMs(trip);
+    }
+
+    public long getDurationMs(int trip) {
+        return columns.endTimeMs(trip) - columns.startTimeMs(trip);
+    }
+
+    public int getStartStationId(int trip) {
+        return columns.startStationId(trip);
+    }
+
+    public int getEndStationId(int trip) {
+        return columns.endStationId(trip);
+    }
+
+    public int getStartArrondissementId(int trip) {
+        return columns.startArrondissementId(trip);
+    }
+
+    public int getEndArrondissementId(int trip) {
+        return columns.endArrondissementId(trip);
+    }
+
+    public StationDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Materializes a trip as a {@link BixiTrip} view; names are shared, not copied.
+     */
+    public BixiTrip trip(int trip) {
+        int startStation = columns.startStationId(trip);
+        int endStation = columns.endStationId(trip);
+        return new BixiTrip(
+                dictionary.getStationName(startStation),
+                dictionary.getArrondissementName(columns.startArrondissementId(trip)),
+                dictionary.getStationLatitude(startStation),
+                dictionary.getStationLongitude(startStation),
+                dictionary.getStationName(endStation),
+                dictionary.getArrondissementName(columns.endArrondissementId(trip)),
+                dictionary.getStationLatitude(endStation),
+                dictionary.getStationLongitude(endStation),
+                columns.startTimeMs(trip),
+                columns.endTimeMs(trip));
+    }
+
+    /**
+     * Returns a store holding these trips followed by those of {@code part}, whose dictionary ids
+     * are translated through the given maps into {@code dictionary}. This store is left as it was.
+     * <p>
+     * The new trips are written past the end of these columns when no other store has done so
+     * yet, so appending costs only the new trips; otherwise the columns are copied first.
+     */
+    public TripStore append(TripStore part, int[] stationMap, int[] arrondissementMap, StationDictionary dictionary) {
+        int newSize = Math.addExact(size, part.size);
+        TripColumns target = columns;
+        AtomicInteger targetWritten = written;
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(newSize, size * 2L));
+        if (size == 0) {
+            // nothing to keep: take the part's kind of storage rather than the empty store's
+            target = part.columns.copyOf(capacity, 0);
+            targetWritten = new AtomicInteger(newSize);
+        } else if (!written.compareAndSet(size, newSize)) {
+            target = columns.copyOf(capacity, size);
+            targetWritten = new AtomicInteger(newSize);
+        } else if (newSize > columns.capacity()) {
+            target = columns.grow(capacity, size);
+            targetWritten = new AtomicInteger(newSize);
+        }
+        TripColumns from = part.columns;
+        for (int i = 0; i < part.size; i++) {
+            target.set(size + i,
+                    stationMap[from.startStationId(i)], arrondissementMap[from.startArrondissementId(i)],
+                    stationMap[from.endStationId(i)], arrondissementMap[from.endArrondissementId(i)],
+                    from.startTimeMs(i), from.endTimeMs(i));
+        }
+        return new TripStore(newSize, target, dictionary, targetWritten);
+    }
+
+    void writeTo(TripSnapshot.Writer out) throws IOException {
+        out.writeInt(size);
+        columns.writeTo(out, size);
+    }
+
+    static TripStore readFrom(TripSnapshot.Reader in, StationDictionary dictionary, TripStorage storage)
+            throws IOException {
+        int size = in.readInt();
+        return new TripStore(size, storage.readFrom(in, size), dictionary, new AtomicInteger(size));
+    }
+
+    /**
+     * Collects trips into columns of the chosen {@link TripStorage}. Builders default to the heap,
+     * which suits short-lived per-chunk builders.
+     */
+    public static class Builder {
+        private final StationDictionary dictionary = new StationDictionary();
+        private TripColumns columns;
+        private int size;
+
+        public Builder() {
+            this(1024);
+        }
+
+        public Builder(int initialCapacity) {
+            this(initialCapacity, TripStorage.HEAP);
+        }
+
+        public Builder(int initialCapacity, TripStorage storage) {
+            columns = storage.allocate(Math.max(16, initialCapacity));
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public StationDictionary getDictionary() {
+            return dictionary;
+        }
+
+        public void add(int startStation, int startArrondissement, int endStation, int endArrondissement,
+                        long startMs, long endMs) {
+            ensureCapacity(size + 1);
+            columns.set(size, startStation, startArrondissement, endStation, endArrondissement, startMs, endMs);
+            size++;
+        }
+
+        /**
+         * Appends every trip of another builder, translating its dictionary ids into this builder's ids.
+         */
+        public void append(Builder other) {
+            append(other.columns, other.size, other.dictionary);
+        }
+
+        /**
+         * Appends every trip of a store, translating its dictionary ids into this builder's ids.
+         */
+        public void append(TripStore other) {
+            append(other.columns, other.size, other.dictionary);
+        }
+
+        private void append(TripColumns from, int count, StationDictionary names) {
+            int[] stationMap = dictionary.importStations(names);
+            int[] arrondissementMap = dictionary.importArrondissements(names);
+            ensureCapacity(size + count);
+            for (int i = 0; i < count; i++) {
+                columns.set(size + i,
+                        stationMap[from.startStationId(i)], arrondissementMap[from.startArrondissementId(i)],
+                        stationMap[from.endStationId(i)], arrondissementMap[from.endArrondissementId(i)],
+                        from.startTimeMs(i), from.endTimeMs(i));
+            }
+            size += count;
+        }
+
+        public TripStore build() {
+            return new TripStore(size, columns, dictionary, new AtomicInteger(size));
+        }
+
+        private void ensureCapacity(int required) {
+            if (required > columns.capacity()) {
+                columns = columns.grow((int) Math.min(Integer.MAX_VALUE - 8,
+                        Math.max(required, columns.capacity() * 2L)), size);
+            }
+        }
+    }
+}
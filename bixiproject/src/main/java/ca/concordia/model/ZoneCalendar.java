@@ -0,0 +1,244 @@
+package ca.concordia.model;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+
+/**
+ * Converts between epoch milliseconds and local calendar fields of one zone without allocating.
+ * The zone's offset transitions over a time span are copied into a table once; instants and
+ * local times inside the span are resolved by a search of that table and calendar dates by
+ * integer arithmetic. Outside the span, the zone rules are asked directly.
+ * <p>
+ * Local times are counted in milliseconds since 1970-01-01T00:00 local. Results match
+ * {@code java.time}: a local time in a gap is moved later by the length of the gap, one in an
+ * overlap takes the earlier offset, and a day starting in a gap starts when the gap ends.
+ */
+public final class ZoneCalendar {
+    public static final long HOUR_MS = 3_600_000L;
+    public static final long DAY_MS = 24 * HOUR_MS;
+    /** Extra time covered on each side of the requested span. */
+    private static final long MARGIN_MS = 366 * DAY_MS;
+
+    private final ZoneId zone;
+    private final ZoneRules rules;
+    private final long spanStartMs;
+    private final long spanEndMs;
+    /** Instants at which the offset changes, ascending. */
+    private final long[] transitionMs;
+    /** {@code offsetMs[i]} applies from {@code transitionMs[i - 1]} (inclusive) to {@code transitionMs[i]}. */
+    private final long[] offsetMs;
+
+    private ZoneCalendar(ZoneId zone, long spanStartMs, long spanEndMs, long[] transitionMs, long[] offsetMs) {
+        this.zone = zone;
+        this.rules = zone.getRules();
+        this.spanStartMs = spanStartMs;
+        this.spanEndMs = spanEndMs;
+        this.transitionMs = transitionMs;
+        this.offsetMs = offsetMs;
+    }
+
+    /**
+     * @return a calendar whose table covers at least the instants {@code [fromMs, toMs]}
+     */
+    public static ZoneCalendar of(ZoneId zone, long fromMs, long toMs) {
+        ZoneRules rules = zone.getRules();
+        long start = saturatedAdd(Math.min(fromMs, toMs), -MARGIN_MS);
+        long end = saturatedAdd(Math.max(fromMs, toMs), MARGIN_MS);
+        long[] transitions = new long[8];
+        long[] offsets = new long[9];
+        offsets[0] = offsetMs(rules, start);
+        int count = 0;
+        if (!rules.isFixedOffset()) {
+            ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochMilli(start));
+            while (transition != null && transition.toEpochSecond() * 1000 < end) {
+                if (count == transitions.length) {
+                    transitions = Arrays.copyOf(transitions, count * 2);
+                    offsets = Arrays.copyOf(offsets, count * 2 + 1);
+                }
+                transitions[count] = transition.toEpochSecond() * 1000;
+                offsets[++count] = transition.getOffsetAfter().getTotalSeconds() * 1000L;
+                transition = rules.nextTransition(transition.getInstant());
+            }
+        }
+        return new ZoneCalendar(zone, start, end, Arrays.copyOf(transitions, count), Arrays.copyOf(offsets, count + 1));
+    }
+
+    /**
+     * @return this calendar if its table covers {@code [fromMs, toMs]}, otherwise one that does
+     */
+    public ZoneCalendar covering(long fromMs, long toMs) {
+        if (fromMs >= spanStartMs && toMs < spanEndMs) {
+            return this;
+        }
+        return of(zone, Math.min(fromMs, spanStartMs + MARGIN_MS), Math.max(toMs, spanEndMs - MARGIN_MS));
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * @return the zone's offset from UTC at {@code epochMs}
+     */
+    public long offsetMs(long epochMs) {
+        if (epochMs < spanStartMs || epochMs >= spanEndMs) {
+            return offsetMs(rules, epochMs);
+        }
+        return offsetMs[segmentOf(epochMs)];
+    }
+
+    /**
+     * @return the first instant after {@code epochMs} at which the offset changes, or
+     * {@link Long#MAX_VALUE} if it never changes again
+     */
+    public long nextTransitionMs(long epochMs) {
+        if (epochMs >= spanStartMs && epochMs < spanEndMs) {
+            int segment = segmentOf(epochMs);
+            if (segment < transitionMs.length) {
+                return transitionMs[segment];
+            }
+        }
+        ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochMilli(epochMs));
+        return transition == null ? Long.MAX_VALUE : transition.toEpochSecond() * 1000;
+    }
+
+    public long toLocalMs(long epochMs) {
+        return epochMs + offsetMs(epochMs);
+    }
+
+    public long epochDayOf(long epochMs) {
+        return Math.floorDiv(toLocalMs(epochMs), DAY_MS);
+    }
+
+    public int hourOf(long epochMs) {
+        return (int) (Math.floorMod(toLocalMs(epochMs), DAY_MS) / HOUR_MS);
+    }
+
+    /**
+     * @return {@code year * 12 + month - 1} of the local date at {@code epochMs}
+     */
+    public int yearMonthOf(long epochMs) {
+        return yearMonth(epochDayOf(epochMs));
+    }
+
+    /**
+     * @return the instant of local time {@code localMs}, as {@link LocalDateTime#atZone} resolves it
+     */
+    public long toEpochMs(long localMs) {
+        if (localMs < spanStartMs + DAY_MS || localMs >= spanEndMs - DAY_MS) {
+            LocalDateTime local = LocalDateTime.ofEpochSecond(Math.floorDiv(localMs, 1000),
+                    Math.floorMod(localMs, 1000) * 1_000_000, ZoneOffset.UTC);
+            return local.atZone(zone).toInstant().toEpochMilli();
+        }
+        return resolve(localMs, false);
+    }
+
+    /**
+     * @return the instant local day {@code epochDay} starts at, as {@link LocalDate#atStartOfDay(ZoneId)} gives it
+     */
+    public long startOfDayMs(long epochDay) {
+        long localMs = epochDay * DAY_MS;
+        if (localMs < spanStartMs + DAY_MS || localMs >= spanEndMs - DAY_MS) {
+            return LocalDate.ofEpochDay(epochDay).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+        return resolve(localMs, true);
+    }
+
+    /**
+     * @return the instant local month {@code yearMonth} ({@code year * 12 + month - 1}) starts at
+     */
+    public long startOfMonthMs(int yearMonth) {
+        return startOfDayMs(epochDay(Math.floorDiv(yearMonth, 12), Math.floorMod(yearMonth, 12) + 1, 1));
+    }
+
+    /**
+     * @return the day count since 1970-01-01 of a proleptic Gregorian date
+     */
+    public static long epochDay(int year, int month, int dayOfMonth) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + dayOfMonth - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    /**
+     * @return {@code year * 12 + month - 1} of day {@code epochDay}
+     */
+    public static int yearMonth(long epochDay) {
+        long z = epochDay + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (int) (year * 12 + month - 1);
+    }
+
+    /**
+     * @return the day of the month (1-31) of day {@code epochDay}
+     */
+    public static int dayOfMonth(long epochDay) {
+        int yearMonth = yearMonth(epochDay);
+        return (int) (epochDay - epochDay(Math.floorDiv(yearMonth, 12), Math.floorMod(yearMonth, 12) + 1, 1)) + 1;
+    }
+
+    /**
+     * Resolves a local time inside the table. Segment {@code s} covers the local times from
+     * {@code transitionMs[s - 1] + offsetMs[s]} to {@code transitionMs[s] + offsetMs[s]}.
+     */
+    private long resolve(long localMs, boolean startOfDay) {
+        int lo = 0;
+        int hi = transitionMs.length;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (transitionMs[mid - 1] + offsetMs[mid] <= localMs) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        int segment = lo;
+        if (segment < transitionMs.length && localMs >= transitionMs[segment] + offsetMs[segment]) {
+            // in the gap before the next segment
+            return startOfDay ? transitionMs[segment] : localMs - offsetMs[segment];
+        }
+        if (segment > 0 && localMs < transitionMs[segment - 1] + offsetMs[segment - 1]) {
+            // in an overlap: the earlier offset wins
+            return localMs - offsetMs[segment - 1];
+        }
+        return localMs - offsetMs[segment];
+    }
+
+    private int segmentOf(long epochMs) {
+        int lo = 0;
+        int hi = transitionMs.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (transitionMs[mid] <= epochMs) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static long offsetMs(ZoneRules rules, long epochMs) {
+        return rules.getOffset(Instant.ofEpochMilli(epochMs)).getTotalSeconds() * 1000L;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return ((a ^ sum) & (b ^ sum)) < 0 ? (b < 0 ? Long.MIN_VALUE : Long.MAX_VALUE) : sum;
+    }
+}
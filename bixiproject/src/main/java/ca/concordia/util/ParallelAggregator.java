@@ -0,0 +1,97 @@
+package ca.concordia.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Splits an index range into pieces, folds each piece into its own accumulator on a
+ * {@link ForkJoinPool} and merges the accumulators pairwise, left before right, so results that
+ * depend on order (such as filtered ordinal lists) come out in range order.
+ * <p>
+ * Ranges shorter than the sequential threshold are folded on the calling thread.
+ */
+public class ParallelAggregator {
+    public static final String THRESHOLD_PROPERTY = "bixi.parallel.threshold";
+    public static final int DEFAULT_THRESHOLD = 1 << 16;
+
+    /**
+     * Folds the elements {@code [from, to)} into {@code accumulator}.
+     */
+    @FunctionalInterface
+    public interface RangeFolder<A> {
+        void fold(A accumulator, int from, int to);
+    }
+
+    private final ForkJoinPool pool;
+    private final int sequentialThreshold;
+
+    public ParallelAggregator() {
+        this(ForkJoinPool.commonPool(), Integer.getInteger(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD));
+    }
+
+    public ParallelAggregator(ForkJoinPool pool, int sequentialThreshold) {
+        this.pool = pool;
+        this.sequentialThreshold = Math.max(1, sequentialThreshold);
+    }
+
+    public int getSequentialThreshold() {
+        return sequentialThreshold;
+    }
+
+    public <A> A aggregate(int from, int to, Supplier<A> identity, RangeFolder<A> folder, BinaryOperator<A> merger) {
+        int length = to - from;
+        if (length < sequentialThreshold || pool.getParallelism() < 2) {
+            A accumulator = identity.get();
+            folder.fold(accumulator, from, Math.max(from, to));
+            return accumulator;
+        }
+        int leaf = Math.max(1, Math.max(sequentialThreshold / 4, length / (pool.getParallelism() * 4)));
+        return pool.invoke(new Task<>(from, to, leaf, identity, folder, merger));
+    }
+
+    /**
+     * Adds {@code right} into {@code left} element-wise and returns {@code left}.
+     */
+    public static int[] sum(int[] left, int[] right) {
+        for (int i = 0; i < left.length; i++) {
+            left[i] += right[i];
+        }
+        return left;
+    }
+
+    @SuppressWarnings("serial")
+    private static final class Task<A> extends RecursiveTask<A> {
+        private final int from;
+        private final int to;
+        private final int leaf;
+        private final Supplier<A> identity;
+        private final RangeFolder<A> folder;
+        private final BinaryOperator<A> merger;
+
+        Task(int from, int to, int leaf, Supplier<A> identity, RangeFolder<A> folder, BinaryOperator<A> merger) {
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+            this.identity = identity;
+            this.folder = folder;
+            this.merger = merger;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= leaf) {
+                A accumulator = identity.get();
+                folder.fold(accumulator, from, to);
+                return accumulator;
+            }
+            int mid = (from + to) >>> 1;
+            Task<A> left = new Task<>(from, mid, leaf, identity, folder, merger);
+            Task<A> right = new Task<>(mid, to, leaf, identity, folder, merger);
+            left.fork();
+            A rightResult = right.compute();
+            return merger.apply(left.join(), rightResult);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package ca.concordia.util;
+
+import ca.concordia.model.SimpleList;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Sorting routines used by the controller and the indexes.
+ * <p>
+ * Primitive-keyed sorts are stable LSD radix sorts that reorder a parallel {@code int[]} of
+ * ordinals along with the keys. Object sorts are stable and run in place on the backing array
+ * of a {@link SimpleList} without allocating, so equal elements keep their insertion order.
+ */
+public final class Sorts {
+    private static final int INSERTION_BLOCK = 20;
+
+    private Sorts() {
+    }
+
+    /**
+     * Sorts {@code keys} ascending and applies the same permutation to {@code values}.
+     * Equal keys keep their relative order.
+     */
+    public static void sortByKey(long[] keys, int[] values) {
+        sortByKey(keys, values, keys.length);
+    }
+
+    /**
+     * Sorts the first {@code n} entries of {@code keys} ascending, permuting {@code values} alongside.
+     */
+    public static void sortByKey(long[] keys, int[] values, int n) {
+        if (n < 2) {
+            return;
+        }
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            min = Math.min(min, keys[i]);
+            max = Math.max(max, keys[i]);
+        }
+        // Offsets from the minimum are compared as unsigned values, so even a full-range span fits.
+        long span = max - min;
+        if (span == 0) {
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            keys[i] -= min;
+        }
+
+        long[] targetKeys = keys;
+        int[] targetValues = values;
+        long[] keyBuffer = new long[n];
+        int[] valueBuffer = new int[n];
+        int[] counts = new int[257];
+        for (int shift = 0; shift < 64 && (span >>> shift) != 0; shift += 8) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++) {
+                counts[(int) ((keys[i] >>> shift) & 0xFF) + 1]++;
+            }
+            if (counts[(int) ((keys[0] >>> shift) & 0xFF) + 1] == n) {
+                continue;
+            }
+            for (int b = 0; b < 256; b++) {
+                counts[b + 1] += counts[b];
+            }
+            for (int i = 0; i < n; i++) {
+                int dest = counts[(int) ((keys[i] >>> shift) & 0xFF)]++;
+                keyBuffer[dest] = keys[i];
+                valueBuffer[dest] = values[i];
+            }
+            long[] k = keys;
+            keys = keyBuffer;
+            keyBuffer = k;
+            int[] v = values;
+            values = valueBuffer;
+            valueBuffer = v;
+        }
+        for (int i = 0; i < n; i++) {
+            targetKeys[i] = keys[i] + min;
+        }
+        if (values != targetValues) {
+            System.arraycopy(values, 0, targetValues, 0, n);
+        }
+    }
+
+    /**
+     * Sorts the first {@code n} entries of {@code keys} descending, permuting {@code values} alongside.
+     * Equal keys keep their relative order.
+     */
+    public static void sortByKeyDescending(long[] keys, int[] values, int n) {
+        for (int i = 0; i < n; i++) {
+            keys[i] = ~keys[i];
+        }
+        sortByKey(keys, values, n);
+        for (int i = 0; i < n; i++) {
+            keys[i] = ~keys[i];
+        }
+    }
+
+    /**
+     * Sorts the first {@code n} entries of {@code keys} ascending, permuting {@code values} alongside.
+     * Uses the IEEE total order, so {@code -0.0f} sorts before {@code 0.0f} and NaN sorts last.
+     */
+    public static void sortByKey(float[] keys, int[] values, int n) {
+        long[] sortable = new long[n];
+        for (int i = 0; i < n; i++) {
+            int bits = Float.floatToIntBits(keys[i]);
+            sortable[i] = bits ^ ((bits >> 31) & 0x7FFFFFFF);
+        }
+        sortByKey(sortable, values, n);
+        for (int i = 0; i < n; i++) {
+            int bits = (int) sortable[i];
+            keys[i] = Float.intBitsToFloat(bits ^ ((bits >> 31) & 0x7FFFFFFF));
+        }
+    }
+
+    /**
+     * Stable in-place sort of a {@link SimpleList}: insertion-sorted blocks merged with SymMerge
+     * (Kim and Kutzner), which needs no scratch buffer.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void sort(SimpleList<T> list, Comparator<? super T> comparator) {
+        Object[] a = list.rawArray();
+        Comparator<Object> c = (Comparator<Object>) comparator;
+        int n = list.size();
+
+        int blockSize = INSERTION_BLOCK;
+        int from = 0;
+        for (int to = blockSize; to <= n; to += blockSize) {
+            insertionSort(a, from, to, c);
+            from = to;
+        }
+        insertionSort(a, from, n, c);
+
+        for (; blockSize < n; blockSize *= 2) {
+            from = 0;
+            for (int to = 2 * blockSize; to <= n; to += 2 * blockSize) {
+                symMerge(a, from, from + blockSize, to, c);
+                from = to;
+            }
+            if (from + blockSize < n) {
+                symMerge(a, from, from + blockSize, n, c);
+            }
+        }
+    }
+
+    private static void insertionSort(Object[] a, int from, int to, Comparator<Object> c) {
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && c.compare(a[j], a[j - 1]) < 0; j--) {
+                swap(a, j, j - 1);
+            }
+        }
+    }
+
+    /**
+     * Merges the sorted runs {@code [from, mid)} and {@code [mid, to)} in place.
+     */
+    private static void symMerge(Object[] a, int from, int mid, int to, Comparator<Object> c) {
+        if (mid - from == 1) {
+            int lo = mid;
+            int hi = to;
+            while (lo < hi) {
+                int h = (lo + hi) >>> 1;
+                if (c.compare(a[h], a[from]) < 0) {
+                    lo = h + 1;
+                } else {
+                    hi = h;
+                }
+            }
+            for (int k = from; k < lo - 1; k++) {
+                swap(a, k, k + 1);
+            }
+            return;
+        }
+        if (to - mid == 1) {
+            int lo = from;
+            int hi = mid;
+            while (lo < hi) {
+                int h = (lo + hi) >>> 1;
+                if (c.compare(a[mid], a[h]) >= 0) {
+                    lo = h + 1;
+                } else {
+                    hi = h;
+                }
+            }
+            for (int k = mid; k > lo; k--) {
+                swap(a, k, k - 1);
+            }
+            return;
+        }
+
+        int half = (from + to) >>> 1;
+        int n = half + mid;
+        int start;
+        int r;
+        if (mid > half) {
+            start = n - to;
+            r = half;
+        } else {
+            start = from;
+            r = mid;
+        }
+        int p = n - 1;
+        while (start < r) {
+            int h = (start + r) >>> 1;
+            if (c.compare(a[p - h], a[h]) >= 0) {
+                start = h + 1;
+            } else {
+                r = h;
+            }
+        }
+        int end = n - start;
+        if (start < mid && mid < end) {
+            rotate(a, start, mid, end);
+        }
+        if (from < start && start < half) {
+            symMerge(a, from, start, half, c);
+        }
+        if (half < end && end < to) {
+            symMerge(a, half, end, to, c);
+        }
+    }
+
+    /**
+     * Rotates {@code [from, to)} so that the element at {@code mid} becomes the first one.
+     */
+    private static void rotate(Object[] a, int from, int mid, int to) {
+        int i = mid - from;
+        int j = to - mid;
+        while (i != j) {
+            if (i > j) {
+                swapRange(a, mid - i, mid, j);
+                i -= j;
+            } else {
+                swapRange(a, mid - i, mid + j - i, i);
+                j -= i;
+            }
+        }
+        swapRange(a, mid - i, mid, i);
+    }
+
+    private static void swapRange(Object[] a, int x, int y, int length) {
+        for (int k = 0; k < length; k++) {
+            swap(a, x + k, y + k);
+        }
+    }
+
+    private static void swap(Object[] a, int i, int j) {
+        Object t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+}
@@ -0,0 +1,96 @@
+package ca.concordia.util;
+
+/**
+ * Bounded top-K selection over a primitive count array indexed by id.
+ * <p>
+ * Ids are ranked by descending count, then by {@code tieBreak}. A min-heap of the current
+ * k winners is kept, so selection runs in O(n log k) and only the result array is allocated.
+ */
+public final class TopK {
+
+    /**
+     * Orders two ids whose counts are equal; negative means {@code a} ranks first.
+     */
+    @FunctionalInterface
+    public interface IdOrder {
+        int compare(int a, int b);
+    }
+
+    private TopK() {
+    }
+
+    /**
+     * @return the ids of the (at most) k highest non-zero counts, best first
+     */
+    public static int[] select(int[] counts, int k, IdOrder tieBreak) {
+        if (k <= 0) {
+            return new int[0];
+        }
+        int[] heap = new int[Math.min(k, counts.length)];
+        int size = 0;
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] == 0) {
+                continue;
+            }
+            if (size < heap.length) {
+                heap[size] = id;
+                siftUp(heap, size++, counts, tieBreak);
+            } else if (ranksBefore(id, heap[0], counts, tieBreak)) {
+                heap[0] = id;
+                siftDown(heap, size, counts, tieBreak);
+            }
+        }
+
+        // Pop the worst remaining winner into the back of the array until the heap is empty.
+        int[] winners = new int[size];
+        for (int end = size - 1; end >= 0; end--) {
+            winners[end] = heap[0];
+            heap[0] = heap[end];
+            siftDown(heap, end, counts, tieBreak);
+        }
+        return winners;
+    }
+
+    private static boolean ranksBefore(int a, int b, int[] counts, IdOrder tieBreak) {
+        if (counts[a] != counts[b]) {
+            return counts[a] > counts[b];
+        }
+        return tieBreak.compare(a, b) < 0;
+    }
+
+    private static void siftUp(int[] heap, int index, int[] counts, IdOrder tieBreak) {
+        int id = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksBefore(heap[parent], id, counts, tieBreak)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = id;
+    }
+
+    private static void siftDown(int[] heap, int size, int[] counts, IdOrder tieBreak) {
+        if (size == 0) {
+            return;
+        }
+        int id = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && ranksBefore(heap[child], heap[child + 1], counts, tieBreak)) {
+                child++;
+            }
+            if (!ranksBefore(id, heap[child], counts, tieBreak)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = id;
+    }
+}
@@ -0,0 +1,445 @@
+package ca.concordia.util;
+
+import ca.concordia.model.ZoneCalendar;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Writes synthetic trip CSVs in the 10-column layout the loader reads. The same seed and settings
+ * always produce the same bytes.
+ * <p>
+ * Stations belong to the 19 Montreal arrondissements and are scattered around each one's centre.
+ * Start stations follow a Zipf distribution whose popular ranks lean towards downtown, and most
+ * trips end in the arrondissement they started in. Start times follow the April 15 to November 15
+ * season, peaking in July, with weekday commute peaks and a flatter weekend curve. Durations
+ * follow the distance ridden at a random speed, plus a detour.
+ * <p>
+ * Every row is encoded straight into one reused buffer, which is drained to the channel when full.
+ */
+public final class TripCsvGenerator {
+    /** Changes whenever the same seed would produce different rows, so cached files can be told apart. */
+    public static final int FORMAT_VERSION = 2;
+    public static final long DEFAULT_SEED = 42;
+    public static final int DEFAULT_STATIONS = 800;
+    public static final int DEFAULT_YEAR = 2024;
+    public static final double DEFAULT_ZIPF_EXPONENT = 0.6;
+    public static final ZoneId DEFAULT_ZONE = ZoneId.of("America/Montreal");
+
+    private static final String HEADER = "STARTSTATIONNAME,STARTSTATIONARRONDISSEMENT,STARTSTATIONLATITUDE,"
+            + "STARTSTATIONLONGITUDE,ENDSTATIONNAME,ENDSTATIONARRONDISSEMENT,ENDSTATIONLATITUDE,ENDSTATIONLONGITUDE,"
+            + "STARTTIMEMS,ENDTIMEMS\n";
+    private static final int BUFFER_BYTES = 1 << 20;
+    /** Share of trips that end in the arrondissement they started in. */
+    private static final double LOCAL_TRIP_SHARE = 0.6;
+    private static final double DOWNTOWN_LATITUDE = 45.5017;
+    private static final double DOWNTOWN_LONGITUDE = -73.5673;
+    private static final double KM_PER_DEGREE_LATITUDE = 111.2;
+    private static final double KM_PER_DEGREE_LONGITUDE = 78.0;
+
+    /** Name, latitude and longitude of the centre, and relative number of stations. */
+    private static final Object[][] ARRONDISSEMENTS = {
+            {"Ville-Marie", 45.5088, -73.5617, 16},
+            {"Le Plateau-Mont-Royal", 45.5236, -73.5818, 14},
+            {"Rosemont\u2013La Petite-Patrie", 45.5446, -73.5848, 10},
+            {"Villeray\u2013Saint-Michel\u2013Parc-Extension", 45.5487, -73.6188, 7},
+            {"C\u00f4te-des-Neiges\u2013Notre-Dame-de-Gr\u00e2ce", 45.4904, -73.6244, 7},
+            {"Le Sud-Ouest", 45.4766, -73.5801, 6},
+            {"Mercier\u2013Hochelaga-Maisonneuve", 45.5636, -73.5430, 6},
+            {"Outremont", 45.5171, -73.6071, 3},
+            {"Verdun", 45.4565, -73.5717, 4},
+            {"Ahuntsic-Cartierville", 45.5550, -73.6701, 4},
+            {"Saint-Laurent", 45.5039, -73.7101, 3},
+            {"LaSalle", 45.4307, -73.6305, 2},
+            {"Lachine", 45.4413, -73.6923, 2},
+            {"Montr\u00e9al-Nord", 45.5895, -73.6312, 2},
+            {"Saint-L\u00e9onard", 45.5870, -73.5960, 2},
+            {"Anjou", 45.6101, -73.5639, 1},
+            {"Rivi\u00e8re-des-Prairies\u2013Pointe-aux-Trembles", 45.6480, -73.5342, 1},
+            {"Pierrefonds-Roxboro", 45.4946, -73.8474, 1},
+            {"L'\u00cele-Bizard\u2013Sainte-Genevi\u00e8ve", 45.4954, -73.8939, 1},
+    };
+    private static final String[] STREETS = {
+            "Saint-Denis", "Saint-Laurent", "Sherbrooke", "Mont-Royal", "Rachel", "Laurier", "Saint-Viateur",
+            "Papineau", "De Lorimier", "Berri", "Sainte-Catherine", "Ren\u00e9-L\u00e9vesque", "de Maisonneuve", "Ontario",
+            "Notre-Dame", "de la Commune", "Peel", "Guy", "Atwater", "Saint-Urbain", "Clark", "Saint-Hubert",
+            "Beaubien", "B\u00e9langer", "Jean-Talon", "Masson", "Christophe-Colomb", "Fullum", "Parthenais",
+            "Wellington", "Centre", "Monk", "Sainte-Rose", "Marie-Anne", "Duluth", "Van Horne", "Bernard",
+            "C\u00f4te-Sainte-Catherine", "Queen-Mary", "D\u00e9carie",
+    };
+    /** Relative departures by local hour on weekdays: commute peaks at 8:00 and 17:00. */
+    private static final double[] WEEKDAY_HOURS = {
+            0.6, 0.3, 0.2, 0.1, 0.1, 0.4, 1.6, 4.5, 7.5, 4.6, 3.0, 3.4,
+            4.2, 4.0, 3.8, 4.6, 6.4, 8.0, 6.2, 4.4, 3.2, 2.4, 1.6, 1.0,
+    };
+    /** Relative departures by local hour on weekends: one broad afternoon peak. */
+    private static final double[] WEEKEND_HOURS = {
+            1.2, 0.9, 0.6, 0.3, 0.2, 0.2, 0.4, 0.9, 1.8, 3.0, 4.2, 5.0,
+            5.6, 5.9, 6.0, 5.8, 5.4, 5.0, 4.4, 3.6, 2.8, 2.2, 1.7, 1.4,
+    };
+
+    private final long seed;
+    private final int year;
+    private final ZoneCalendar calendar;
+    private final byte[][] stationFields;
+    private final String[] stationNames;
+    private final int[] stationArrondissement;
+    private final double[] stationLatitude;
+    private final double[] stationLongitude;
+    private final AliasTable startStations;
+    /** End station candidates of each arrondissement, drawn by the same popularity. */
+    private final int[][] localStations;
+    private final AliasTable[] localChoice;
+    private final long[] dayStartLocalMs;
+    private final boolean[] weekend;
+    private final AliasTable days;
+    private final AliasTable weekdayHours;
+    private final AliasTable weekendHours;
+    private long state;
+
+    public TripCsvGenerator(long seed) {
+        this(seed, DEFAULT_STATIONS, DEFAULT_YEAR, DEFAULT_ZIPF_EXPONENT, DEFAULT_ZONE);
+    }
+
+    /**
+     * @param zipfExponent skew of station popularity; the station of rank {@code r} (from 1) is
+     *                     chosen with weight {@code 1 / r^zipfExponent}
+     * @param zone         the zone local start times are drawn in
+     */
+    public TripCsvGenerator(long seed, int stations, int year, double zipfExponent, ZoneId zone) {
+        if (stations < 1) {
+            throw new IllegalArgumentException("At least one station is needed");
+        }
+        this.seed = seed;
+        this.year = year;
+        this.state = seed;
+
+        stationFields = new byte[stations][];
+        stationNames = new String[stations];
+        stationArrondissement = new int[stations];
+        stationLatitude = new double[stations];
+        stationLongitude = new double[stations];
+        int totalShares = 0;
+        for (Object[] arrondissement : ARRONDISSEMENTS) {
+            totalShares += (Integer) arrondissement[3];
+        }
+        double[] score = new double[stations];
+        for (int s = 0, a = 0, share = 0; s < stations; s++) {
+            while (a < ARRONDISSEMENTS.length - 1
+                    && s >= (long) stations * (share + (Integer) ARRONDISSEMENTS[a][3]) / totalShares) {
+                share += (Integer) ARRONDISSEMENTS[a++][3];
+            }
+            stationArrondissement[s] = a;
+            stationLatitude[s] = (Double) ARRONDISSEMENTS[a][1] + gaussian() * 0.008;
+            stationLongitude[s] = (Double) ARRONDISSEMENTS[a][2] + gaussian() * 0.011;
+            stationNames[s] = stationName(s);
+            stationFields[s] = (stationNames[s] + ',' + ARRONDISSEMENTS[a][0] + ','
+                    + coordinate(stationLatitude[s]) + ',' + coordinate(stationLongitude[s]))
+                    .getBytes(StandardCharsets.UTF_8);
+            score[s] = distanceKm(stationLatitude[s], stationLongitude[s], DOWNTOWN_LATITUDE, DOWNTOWN_LONGITUDE)
+                    * (0.3 + 1.4 * nextDouble());
+        }
+
+        // popularity rank grows with the distance to downtown, blurred by a random factor
+        long[] keys = new long[stations];
+        int[] byRank = new int[stations];
+        for (int s = 0; s < stations; s++) {
+            keys[s] = Double.doubleToLongBits(score[s]);
+            byRank[s] = s;
+        }
+        Sorts.sortByKey(keys, byRank, stations);
+        double[] popularity = new double[stations];
+        for (int rank = 0; rank < stations; rank++) {
+            popularity[byRank[rank]] = 1.0 / Math.pow(rank + 1, zipfExponent);
+        }
+        startStations = new AliasTable(popularity);
+
+        int[] counts = new int[ARRONDISSEMENTS.length];
+        for (int s = 0; s < stations; s++) {
+            counts[stationArrondissement[s]]++;
+        }
+        localStations = new int[ARRONDISSEMENTS.length][];
+        localChoice = new AliasTable[ARRONDISSEMENTS.length];
+        for (int a = 0; a < ARRONDISSEMENTS.length; a++) {
+            localStations[a] = new int[counts[a]];
+            double[] weights = new double[counts[a]];
+            for (int s = 0, i = 0; s < stations; s++) {
+                if (stationArrondissement[s] == a) {
+                    weights[i] = popularity[s];
+                    localStations[a][i++] = s;
+                }
+            }
+            localChoice[a] = counts[a] == 0 ? null : new AliasTable(weights);
+        }
+
+        LocalDate first = LocalDate.of(year, 4, 15);
+        int dayCount = (int) (LocalDate.of(year, 11, 15).toEpochDay() - first.toEpochDay());
+        dayStartLocalMs = new long[dayCount];
+        weekend = new boolean[dayCount];
+        double[] dayWeights = new double[dayCount];
+        for (int d = 0; d < dayCount; d++) {
+            LocalDate day = first.plusDays(d);
+            dayStartLocalMs[d] = day.toEpochDay() * ZoneCalendar.DAY_MS;
+            weekend[d] = day.getDayOfWeek().getValue() >= 6;
+            double season = Math.sin(Math.PI * (d + 0.5) / dayCount);
+            dayWeights[d] = (0.2 + season * season) * (weekend[d] ? 0.85 : 1.0) * (0.8 + 0.4 * nextDouble());
+        }
+        days = new AliasTable(dayWeights);
+        weekdayHours = new AliasTable(WEEKDAY_HOURS);
+        weekendHours = new AliasTable(WEEKEND_HOURS);
+        calendar = ZoneCalendar.of(zone, dayStartLocalMs[0] - ZoneCalendar.DAY_MS,
+                dayStartLocalMs[dayCount - 1] + 2 * ZoneCalendar.DAY_MS);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: TripCsvGenerator <rows> <output.csv> [seed]");
+            return;
+        }
+        long rows = Long.parseLong(args[0]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+        long startNs = System.nanoTime();
+        long bytes = new TripCsvGenerator(seed).writeFile(Path.of(args[1]), rows);
+        double seconds = (System.nanoTime() - startNs) / 1e9;
+        System.out.printf("Wrote %d rows, %d bytes in %.2f s (%.1f MB/s)%n", rows, bytes, seconds,
+                bytes / seconds / (1 << 20));
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public int getStationCount() {
+        return stationNames.length;
+    }
+
+    public String getStationName(int station) {
+        return stationNames[station];
+    }
+
+    /**
+     * @return the station drawn most often as a start station
+     */
+    public String getBusiestStationName() {
+        return stationNames[startStations.heaviest()];
+    }
+
+    /**
+     * Creates or replaces {@code path} with a header and {@code rows} trips.
+     * @return the bytes written
+     */
+    public long writeFile(Path path, long rows) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            return write(channel, rows);
+        }
+    }
+
+    /**
+     * Writes a header and {@code rows} trips to {@code channel}, which is left open. Each call
+     * starts over from the seed.
+     * @return the bytes written
+     */
+    public long write(WritableByteChannel channel, long rows) throws IOException {
+        state = seed ^ 0x632BE59BD9B4E019L;
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        byte[] digits = new byte[20];
+        int maxStation = 0;
+        for (byte[] fields : stationFields) {
+            maxStation = Math.max(maxStation, fields.length);
+        }
+        int maxRow = 2 * maxStation + 2 * 20 + 4;
+        long bytes = 0;
+        buffer.put(HEADER.getBytes(StandardCharsets.US_ASCII));
+        for (long row = 0; row < rows; row++) {
+            if (buffer.remaining() < maxRow) {
+                bytes += drain(buffer, channel);
+            }
+            int start = startStations.sample(nextDouble());
+            int end = endStation(start);
+            long startMs = startTime();
+            long endMs = startMs + durationMs(start, end);
+            buffer.put(stationFields[start]).put((byte) ',').put(stationFields[end]).put((byte) ',');
+            putLong(buffer, startMs, digits);
+            buffer.put((byte) ',');
+            putLong(buffer, endMs, digits);
+            buffer.put((byte) '\n');
+        }
+        return bytes + drain(buffer, channel);
+    }
+
+    private int endStation(int start) {
+        double u = nextDouble();
+        if (u < LOCAL_TRIP_SHARE) {
+            int a = stationArrondissement[start];
+            return localStations[a][localChoice[a].sample(u / LOCAL_TRIP_SHARE)];
+        }
+        return startStations.sample((u - LOCAL_TRIP_SHARE) / (1 - LOCAL_TRIP_SHARE));
+    }
+
+    private long startTime() {
+        int day = days.sample(nextDouble());
+        int hour = (weekend[day] ? weekendHours : weekdayHours).sample(nextDouble());
+        long localMs = dayStartLocalMs[day] + hour * ZoneCalendar.HOUR_MS
+                + (long) (nextDouble() * ZoneCalendar.HOUR_MS);
+        return calendar.toEpochMs(localMs);
+    }
+
+    private long durationMs(int start, int end) {
+        double minutes;
+        if (start == end) {
+            // a ride out and back
+            minutes = 8 + 70 * nextDouble() * nextDouble();
+        } else {
+            double km = distanceKm(stationLatitude[start], stationLongitude[start],
+                    stationLatitude[end], stationLongitude[end]);
+            double kmPerHour = 11 + 8 * nextDouble();
+            minutes = 1.5 + km * 1.3 / kmPerHour * 60 - 4 * Math.log(1 - nextDouble());
+        }
+        return (long) (minutes * 60_000);
+    }
+
+    private static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dy = (lat1 - lat2) * KM_PER_DEGREE_LATITUDE;
+        double dx = (lon1 - lon2) * KM_PER_DEGREE_LONGITUDE;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private static String stationName(int station) {
+        int pairs = STREETS.length * (STREETS.length - 1);
+        int pair = (int) ((station * 7919L) % pairs);
+        int first = pair / (STREETS.length - 1);
+        int second = pair % (STREETS.length - 1);
+        if (second >= first) {
+            second++;
+        }
+        String name = STREETS[first] + " / " + STREETS[second];
+        return station < pairs ? name : name + " " + (station / pairs + 1);
+    }
+
+    private static String coordinate(double degrees) {
+        long micro = Math.round(Math.abs(degrees) * 1_000_000);
+        String fraction = Long.toString(1_000_000 + micro % 1_000_000).substring(1);
+        return (degrees < 0 ? "-" : "") + micro / 1_000_000 + "." + fraction;
+    }
+
+    private static void putLong(ByteBuffer buffer, long value, byte[] digits) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+        }
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + Math.abs(value % 10));
+            value /= 10;
+        } while (value != 0);
+        while (n > 0) {
+            buffer.put(digits[--n]);
+        }
+    }
+
+    private static int drain(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        int bytes = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        return bytes;
+    }
+
+    /** SplitMix64: fast, and its stream depends on the seed only. */
+    private long nextLong() {
+        long z = state += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    private double gaussian() {
+        return Math.sqrt(-2 * Math.log(1 - nextDouble())) * Math.cos(2 * Math.PI * nextDouble());
+    }
+
+    /**
+     * Walker's alias method: draws an index with probability proportional to its weight from a
+     * single uniform number, in constant time.
+     */
+    private static final class AliasTable {
+        private final double[] probability;
+        private final int[] alias;
+        private final int heaviest;
+
+        AliasTable(double[] weights) {
+            int n = weights.length;
+            probability = new double[n];
+            alias = new int[n];
+            double total = 0;
+            int max = 0;
+            for (int i = 0; i < n; i++) {
+                total += weights[i];
+                if (weights[i] > weights[max]) {
+                    max = i;
+                }
+            }
+            heaviest = max;
+            double[] scaled = new double[n];
+            int[] small = new int[n];
+            int[] large = new int[n];
+            int smallCount = 0;
+            int largeCount = 0;
+            for (int i = 0; i < n; i++) {
+                scaled[i] = weights[i] * n / total;
+                if (scaled[i] < 1) {
+                    small[smallCount++] = i;
+                } else {
+                    large[largeCount++] = i;
+                }
+            }
+            while (smallCount > 0 && largeCount > 0) {
+                int less = small[--smallCount];
+                int more = large[--largeCount];
+                probability[less] = scaled[less];
+                alias[less] = more;
+                scaled[more] = scaled[more] + scaled[less] - 1;
+                if (scaled[more] < 1) {
+                    small[smallCount++] = more;
+                } else {
+                    large[largeCount++] = more;
+                }
+            }
+            while (largeCount > 0) {
+                probability[large[--largeCount]] = 1;
+            }
+            while (smallCount > 0) {
+                probability[small[--smallCount]] = 1;
+            }
+        }
+
+        /**
+         * @param u a uniform number in {@code [0, 1)}
+         */
+        int sample(double u) {
+            double scaled = u * probability.length;
+            int i = Math.min((int) scaled, probability.length - 1);
+            return scaled - i < probability[i] ? i : alias[i];
+        }
+
+        int heaviest() {
+            return heaviest;
+        }
+    }
+}
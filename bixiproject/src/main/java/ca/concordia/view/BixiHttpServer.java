@@ -0,0 +1,380 @@
+package ca.concordia.view;
+
+import ca.concordia.controller.BixiController;
+import ca.concordia.controller.CachingBixiController;
+import ca.concordia.controller.IBixiController;
+import ca.concordia.controller.InstrumentedBixiController;
+import ca.concordia.metrics.BixiMetrics;
+import ca.concordia.model.Arrondissement;
+import ca.concordia.model.BixiStation;
+import ca.concordia.model.BixiTrip;
+import ca.concordia.model.DurationPercentiles;
+import ca.concordia.model.MonthComparison;
+import ca.concordia.model.RushHour;
+import ca.concordia.model.TripSlice;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the queries of an {@link IBixiController} as JSON over HTTP, on the JDK's built-in server.
+ * All endpoints answer GET:
+ * <pre>
+ * /stats                                         trips, stations and dataset version
+ * /trips/station?name=..&amp;mode=start|end|both     Req.1, mode defaults to both
+ * /trips/month?month=YYYY-MM                     Req.2
+ * /trips/duration?min=minutes                    Req.3
+ * /trips/start-time?from=..&amp;to=..                Req.4, times as "YYYY-MM-DD HH:mm:ss"
+ * /arrondissements/top?k=..                      Req.5
+ * /stations/top?k=..&amp;from=YYYY-MM-DD&amp;to=YYYY-MM-DD  Req.6
+ * /rush-hour?month=1..12                         Req.7
+ * /months/compare?first=..&amp;second=..&amp;k=..       Req.8
+ * /durations?station=.. or /durations?month=YYYY-MM  duration percentiles
+ * </pre>
+ * Trip lists take optional {@code offset} and {@code limit} parameters and are written as a
+ * chunked JSON array while the trips are read, so no response holds a whole result in memory; a
+ * client that reads slowly holds back the writing thread rather than filling a buffer.
+ * <p>
+ * Each request runs on its own virtual thread where the runtime allows it, else on a fixed pool.
+ * Requests that scan trips (Req.1 to Req.5) and the others take permits from separate pools of
+ * {@value #HEAVY_PROPERTY} and {@value #LIGHT_PROPERTY} permits. A request that finds its pool
+ * empty for {@value #ADMISSION_WAIT_MS} ms is refused with 503, so a burst of scans queues on its
+ * own permits instead of delaying lookups.
+ */
+public class BixiHttpServer {
+    public static final String PORT_PROPERTY = "bixi.http.port";
+    public static final String HEAVY_PROPERTY = "bixi.http.heavy";
+    public static final String LIGHT_PROPERTY = "bixi.http.light";
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_LIGHT = 64;
+    public static final long ADMISSION_WAIT_MS = 250;
+
+    private static final String JSON_TYPE = "application/json; charset=utf-8";
+    private static final int STREAM_BUFFER_BYTES = 64 << 10;
+
+    private final IBixiController controller;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore heavy;
+    private final Semaphore light;
+
+    public BixiHttpServer(IBixiController controller, InetSocketAddress address) {
+        this(controller, address, Integer.getInteger(HEAVY_PROPERTY, Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger(LIGHT_PROPERTY, DEFAULT_LIGHT));
+    }
+
+    /**
+     * @param address where to listen; port 0 picks a free port, see {@link #getPort()}
+     * @param heavyPermits how many trip scans may run at once
+     * @param lightPermits how many other requests may run at once
+     */
+    public BixiHttpServer(IBixiController controller, InetSocketAddress address, int heavyPermits, int lightPermits) {
+        this.controller = controller;
+        heavy = new Semaphore(Math.max(1, heavyPermits), true);
+        light = new Semaphore(Math.max(1, lightPermits), true);
+        try {
+            server = HttpServer.create(address, 0);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to listen on " + address, e);
+        }
+        executor = requestExecutor(heavy.availablePermits() + light.availablePermits());
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Loads a data file or directory, then serves it on the loopback interface until the process
+     * is stopped. The port is the second argument, else {@value #PORT_PROPERTY}, else
+     * {@value #DEFAULT_PORT}.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: BixiHttpServer <data file or directory> [port]");
+            return;
+        }
+        IBixiController bixi = new BixiController();
+        IBixiController controller =
+                new CachingBixiController(BixiMetrics.ENABLED ? new InstrumentedBixiController(bixi) : bixi);
+        Path path = Path.of(args[0]);
+        if (Files.isDirectory(path)) {
+            controller.loadDirectory(path, "*.csv");
+        } else {
+            controller.loadFile(args[0]);
+        }
+        BixiMetrics.startConfiguredDump();
+
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT);
+        BixiHttpServer server =
+                new BixiHttpServer(controller, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.start();
+        System.out.println("Serving " + controller.getTotalTripsLoaded() + " trips on http://localhost:"
+                + server.getPort() + "/");
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and waits up to {@code delaySeconds} for running ones to finish.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return a virtual thread per request, or a pool of {@code threads} platform threads where
+     * virtual threads are unavailable (Java 19 and 20 without {@code --enable-preview})
+     */
+    private static ExecutorService requestExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    private void handle(HttpExchange exchange) {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, 405, "Only GET is supported");
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            Semaphore permits = path.startsWith("/trips/") || path.equals("/arrondissements/top") ? heavy : light;
+            if (!permits.tryAcquire(ADMISSION_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 503, "Too many concurrent requests");
+                return;
+            }
+            try {
+                route(exchange, path, exchange.getRequestURI().getRawQuery());
+            } finally {
+                permits.release();
+            }
+        } catch (IllegalArgumentException | DateTimeException e) {
+            sendErrorIfPending(exchange, 400, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendErrorIfPending(exchange, 503, "Server is stopping");
+        } catch (IOException | RuntimeException e) {
+            sendErrorIfPending(exchange, 500, String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange, String path, String query) throws IOException {
+        StringBuilder out = new StringBuilder(256);
+        switch (path) {
+            case "/stats" -> out.append("{\"version\":").append(controller.getDatasetVersion())
+                    .append(",\"trips\":").append(controller.getTotalTripsLoaded())
+                    .append(",\"stations\":").append(controller.getUniqueStationsLoaded()).append('}');
+            case "/trips/station" -> {
+                String mode = param(query, "mode");
+                streamTrips(exchange, query,
+                        controller.getTripsByStation(required(query, "name"), mode == null ? "both" : mode));
+                return;
+            }
+            case "/trips/month" -> {
+                streamTrips(exchange, query, controller.getTripsByMonth(required(query, "month")));
+                return;
+            }
+            case "/trips/duration" -> {
+                float minutes = Float.parseFloat(required(query, "min"));
+                streamTrips(exchange, query, controller.getTripsByDuration(minutes));
+                return;
+            }
+            case "/trips/start-time" -> {
+                streamTrips(exchange, query,
+                        controller.getTripsByStartTime(required(query, "from"), required(query, "to")));
+                return;
+            }
+            case "/arrondissements/top" ->
+                    appendArrondissements(out, controller.getTopArrondissements(intParam(query, "k")));
+            case "/stations/top" -> appendStations(out, controller.getTopStations(intParam(query, "k"),
+                    required(query, "from"), required(query, "to")));
+            case "/rush-hour" -> appendRushHour(out, controller.getRushHourOfMonth(intParam(query, "month")));
+            case "/months/compare" -> {
+                MonthComparison comparison = controller.compareMonths(intParam(query, "first"),
+                        intParam(query, "second"), intParam(query, "k"));
+                appendMonthStats(out.append("{\"first\":"), comparison.getFirstMonth());
+                appendMonthStats(out.append(",\"second\":"), comparison.getSecondMonth()).append('}');
+            }
+            case "/durations" -> {
+                String month = param(query, "month");
+                DurationPercentiles percentiles = month != null
+                        ? controller.getDurationPercentilesByMonth(month)
+                        : controller.getDurationPercentilesByStation(required(query, "station"));
+                out.append("{\"trips\":").append(percentiles.getTripCount())
+                        .append(",\"p50\":").append(percentiles.getP50())
+                        .append(",\"p95\":").append(percentiles.getP95())
+                        .append(",\"p99\":").append(percentiles.getP99()).append('}');
+            }
+            default -> {
+                sendError(exchange, 404, "No such endpoint: " + path);
+                return;
+            }
+        }
+        sendJson(exchange, 200, out);
+    }
+
+    /**
+     * Writes the {@code offset}/{@code limit} page of {@code trips} as a chunked JSON array. When
+     * the result is a {@link TripSlice}, its full size is sent in {@code X-Total-Count}.
+     */
+    private static void streamTrips(HttpExchange exchange, String query, Iterable<BixiTrip> trips) throws IOException {
+        String offsetParam = param(query, "offset");
+        String limitParam = param(query, "limit");
+        int offset = offsetParam == null ? 0 : Integer.parseInt(offsetParam);
+        int limit = limitParam == null ? Integer.MAX_VALUE : Integer.parseInt(limitParam);
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must not be negative");
+        }
+        if (trips instanceof TripSlice slice) {
+            exchange.getResponseHeaders().set("X-Total-Count", String.valueOf(slice.size()));
+            trips = slice.page(offset, limit);
+            offset = 0;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        exchange.sendResponseHeaders(200, 0);
+        ResultWriter out = new ResultWriter(Channels.newChannel(exchange.getResponseBody()), false, null,
+                STREAM_BUFFER_BYTES);
+        out.begin(ResultWriter.Format.JSON);
+        int skipped = 0;
+        int written = 0;
+        for (BixiTrip trip : trips) {
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            if (written == limit) {
+                break;
+            }
+            out.write(trip);
+            written++;
+        }
+        out.end();
+    }
+
+    private static StringBuilder appendArrondissements(StringBuilder out, Iterable<Arrondissement> arrondissements) {
+        out.append('[');
+        boolean first = true;
+        for (Arrondissement arrondissement : arrondissements) {
+            out.append(first ? "{\"name\":" : ",{\"name\":");
+            ResultWriter.appendJson(out, arrondissement.getName())
+                    .append(",\"departures\":").append(arrondissement.getDepartures()).append('}');
+            first = false;
+        }
+        return out.append(']');
+    }
+
+    private static StringBuilder appendStations(StringBuilder out, Iterable<BixiStation> stations) {
+        out.append('[');
+        boolean first = true;
+        for (BixiStation station : stations) {
+            out.append(first ? "{\"name\":" : ",{\"name\":");
+            ResultWriter.appendJson(out, station.getName()).append(",\"trips\":").append(station.getTripCount())
+                    .append('}');
+            first = false;
+        }
+        return out.append(']');
+    }
+
+    private static StringBuilder appendRushHour(StringBuilder out, RushHour rushHour) {
+        return out.append("{\"hour\":").append(rushHour.getHour())
+                .append(",\"averageTrips\":").append(rushHour.getAverageTrips()).append('}');
+    }
+
+    private static StringBuilder appendMonthStats(StringBuilder out, MonthComparison.MonthStats stats) {
+        out.append("{\"month\":").append(stats.getMonth())
+                .append(",\"totalTrips\":").append(stats.getTotalTrips())
+                .append(",\"topStartStations\":");
+        appendStations(out, stats.getTopStartStations()).append(",\"topEndStations\":");
+        appendStations(out, stats.getTopEndStations()).append(",\"rushHour\":");
+        return appendRushHour(out, stats.getRushHour()).append('}');
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, CharSequence json) throws IOException {
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder out = new StringBuilder("{\"error\":");
+        sendJson(exchange, status, ResultWriter.appendJson(out, message).append('}'));
+    }
+
+    /**
+     * Reports an error unless the response has already started, in which case the client sees the
+     * stream end early.
+     */
+    private static void sendErrorIfPending(HttpExchange exchange, int status, String message) {
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        try {
+            sendError(exchange, status, message);
+        } catch (IOException e) {
+            // the client is gone
+        }
+    }
+
+    /**
+     * @return the decoded value of the first {@code name} parameter of a raw query string, "" if
+     * it has no value, or null if it is absent
+     */
+    static String param(String query, String name) {
+        if (query == null) {
+            return null;
+        }
+        int from = 0;
+        while (from <= query.length()) {
+            int end = query.indexOf('&', from);
+            if (end < 0) {
+                end = query.length();
+            }
+            int equals = query.indexOf('=', from);
+            int keyEnd = equals < 0 || equals > end ? end : equals;
+            if (name.equals(URLDecoder.decode(query.substring(from, keyEnd), StandardCharsets.UTF_8))) {
+                return keyEnd == end ? "" : URLDecoder.decode(query.substring(keyEnd + 1, end), StandardCharsets.UTF_8);
+            }
+            from = end + 1;
+        }
+        return null;
+    }
+
+    private static String required(String query, String name) {
+        String value = param(query, name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static int intParam(String query, String name) {
+        return Integer.parseInt(required(query, name).trim());
+    }
+}
@@ -1,25 +1,45 @@
 package ca.concordia.view;
 
 import ca.concordia.controller.BixiController;
+import ca.concordia.controller.CachingBixiController;
 import ca.concordia.controller.IBixiController;
+import ca.concordia.controller.InstrumentedBixiController;
+import ca.concordia.metrics.BixiMetrics;
+import ca.concordia.metrics.OperationMetrics;
 import ca.concordia.model.Arrondissement;
 import ca.concordia.model.BixiStation;
 import ca.concordia.model.BixiTrip;
+import ca.concordia.model.DurationPercentiles;
+import ca.concordia.model.FileLoadReport;
 import ca.concordia.model.MonthComparison;
 import ca.concordia.model.RushHour;
+import ca.concordia.model.TripSlice;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Scanner;
+import java.util.function.Supplier;
 
 public class BixiView {
+    private static final int PAGE_SIZE = 100;
+    private static final OperationMetrics RENDER = BixiMetrics.operation("view.render");
 
-    private final IBixiController controller;
+    private final CachingBixiController controller;
+    private final ResultWriter console = ResultWriter.console();
+    /** Where trip lists go: null for the console, else a file written in {@link #outputFormat}. */
+    private Path outputPath;
+    private ResultWriter.Format outputFormat = ResultWriter.Format.TEXT;
+    private long computeNs;
+    private long renderNs;
 
     /**
      * Constructor for BixiView.
      * Initializes the controller
      */
     public BixiView() {
-        controller = new BixiController();
+        IBixiController bixi = new BixiController();
+        controller = new CachingBixiController(BixiMetrics.ENABLED ? new InstrumentedBixiController(bixi) : bixi);
+        BixiMetrics.startConfiguredDump();
     }
 
     /**
@@ -28,17 +48,25 @@ public class BixiView {
     public void start() {
         System.out.println("Welcome to the Bixi Data Viewer!");
         Scanner scanner = new Scanner(System.in);
-        System.out.print("Please enter the path to the Bixi data file: ");
+        System.out.print("Please enter the path to the Bixi data file or directory: ");
         String filePath = scanner.nextLine();
 
         try {
-            controller.loadFile(filePath);
+            Path path = Path.of(filePath);
+            if (Files.isDirectory(path)) {
+                controller.loadDirectory(path, "*.csv");
+            } else {
+                controller.loadFile(filePath);
+            }
         } catch (RuntimeException ex) {
             System.out.println("Error while loading file: " + ex.getMessage());
             return;
         }
 
         System.out.println("\nData loaded successfully.");
+        for (FileLoadReport report : controller.getLoadReports()) {
+            System.out.println(report);
+        }
         System.out.println("Total trips loaded: " + controller.getTotalTripsLoaded());
         System.out.println("Unique stations loaded: " + controller.getUniqueStationsLoaded());
 
@@ -57,8 +85,17 @@ public class BixiView {
                 case "6" -> executeTimed("Req.6", () -> handleReq6(scanner));
                 case "7" -> executeTimed("Req.7", () -> handleReq7(scanner));
                 case "8" -> executeTimed("Req.8", () -> handleReq8(scanner));
+                case "9" -> chooseOutput(scanner);
+                case "10" -> executeTimed("Durations", () -> handleDurations(scanner));
                 case "0" -> {
                     running = false;
+                    System.out.printf("Result cache: %d hits, %d misses, %d evictions, %d entries (%d KB of %d KB)%n",
+                            controller.getHits(), controller.getMisses(), controller.getEvictions(),
+                            controller.getEntryCount(), controller.getWeightBytes() >> 10,
+                            controller.getMaxBytes() >> 10);
+                    if (BixiMetrics.ENABLED) {
+                        System.out.println(BixiMetrics.dump());
+                    }
                     System.out.println("Goodbye.");
                 }
                 default -> System.out.println("Invalid option. Try again.");
@@ -67,14 +104,59 @@ public class BixiView {
         }
     }
 
+    /**
+     * Runs a request and reports the time spent in {@link #compute} and {@link #render}
+     * separately; waiting for input counts as neither.
+     */
     private void executeTimed(String label, Runnable action) {
-        long startNs = System.nanoTime();
+        computeNs = 0;
+        renderNs = 0;
         try {
             action.run();
+        } finally {
+            System.out.printf("Execution time (%s): compute %.3f ms, render %.3f ms%n",
+                    label, computeNs / 1_000_000.0, renderNs / 1_000_000.0);
+        }
+    }
+
+    private <T> T compute(Supplier<T> query) {
+        long startNs = System.nanoTime();
+        try {
+            return query.get();
+        } finally {
+            computeNs += System.nanoTime() - startNs;
+        }
+    }
+
+    private void render(Runnable output) {
+        long startNs = System.nanoTime();
+        try {
+            output.run();
         } finally {
             long elapsedNs = System.nanoTime() - startNs;
-            double elapsedMs = elapsedNs / 1_000_000.0;
-            System.out.printf("Execution time (%s): %.3f ms%n", label, elapsedMs);
+            renderNs += elapsedNs;
+            if (BixiMetrics.ENABLED) {
+                RENDER.record(elapsedNs, 0, 0, -1);
+            }
+        }
+    }
+
+    private void chooseOutput(Scanner scanner) {
+        System.out.print("Trip lists to (console/csv/json): ");
+        String choice = scanner.nextLine().trim().toLowerCase();
+        switch (choice) {
+            case "console", "" -> {
+                outputPath = null;
+                outputFormat = ResultWriter.Format.TEXT;
+                System.out.println("Trip lists go to the console.");
+            }
+            case "csv", "json" -> {
+                System.out.print("Output file: ");
+                outputPath = Path.of(scanner.nextLine().trim());
+                outputFormat = choice.equals("csv") ? ResultWriter.Format.CSV : ResultWriter.Format.JSON;
+                System.out.println("Trip lists go to " + outputPath + " as " + choice.toUpperCase() + ".");
+            }
+            default -> System.out.println("Invalid output. Try again.");
         }
     }
 
@@ -88,6 +170,8 @@ public class BixiView {
         System.out.println("6) Req.6 - Top K start stations in period");
         System.out.println("7) Req.7 - Rush hour of a month");
         System.out.println("8) Req.8 - Compare two months");
+        System.out.println("9) Output - console, CSV file or JSON file");
+        System.out.println("10) Durations - p50/p95/p99 by station or month");
         System.out.println("0) Exit");
     }
 
@@ -97,22 +181,22 @@ public class BixiView {
         System.out.print("Mode (start/end/both): ");
         String mode = scanner.nextLine();
 
-        Iterable<BixiTrip> trips = controller.getTripsByStation(station, mode);
-        printTrips(trips);
+        Iterable<BixiTrip> trips = compute(() -> controller.getTripsByStation(station, mode));
+        printTrips(trips, scanner);
     }
 
     private void handleReq2(Scanner scanner) {
         System.out.print("Month (YYYY-MM): ");
         String month = scanner.nextLine();
-        Iterable<BixiTrip> trips = controller.getTripsByMonth(month);
-        printTrips(trips);
+        Iterable<BixiTrip> trips = compute(() -> controller.getTripsByMonth(month));
+        printTrips(trips, scanner);
     }
 
     private void handleReq3(Scanner scanner) {
         System.out.print("Minimum duration in minutes (X): ");
         float duration = Float.parseFloat(scanner.nextLine());
-        Iterable<BixiTrip> trips = controller.getTripsByDuration(duration);
-        printTrips(trips);
+        Iterable<BixiTrip> trips = compute(() -> controller.getTripsByDuration(duration));
+        printTrips(trips, scanner);
     }
 
     private void handleReq4(Scanner scanner) {
@@ -120,21 +204,23 @@ public class BixiView {
         String start = scanner.nextLine();
         System.out.print("End time (YYYY-MM-DD HH:mm:ss): ");
         String end = scanner.nextLine();
-        Iterable<BixiTrip> trips = controller.getTripsByStartTime(start, end);
-        printTrips(trips);
+        Iterable<BixiTrip> trips = compute(() -> controller.getTripsByStartTime(start, end));
+        printTrips(trips, scanner);
     }
 
     private void handleReq5(Scanner scanner) {
         System.out.print("Top N arrondissements: ");
         int n = Integer.parseInt(scanner.nextLine());
-        Iterable<Arrondissement> arrondissements = controller.getTopArrondissements(n);
+        Iterable<Arrondissement> arrondissements = compute(() -> controller.getTopArrondissements(n));
 
-        int count = 0;
-        for (Arrondissement a : arrondissements) {
-            System.out.println(a);
-            count++;
-        }
-        System.out.println("Total results: " + count);
+        render(() -> {
+            int count = 0;
+            for (Arrondissement a : arrondissements) {
+                System.out.println(a);
+                count++;
+            }
+            System.out.println("Total results: " + count);
+        });
     }
 
     private void handleReq6(Scanner scanner) {
@@ -145,27 +231,30 @@ public class BixiView {
         System.out.print("End date (YYYY-MM-DD): ");
         String endDate = scanner.nextLine();
 
-        Iterable<BixiStation> stations = controller.getTopStations(k, startDate, endDate);
-        int count = 0;
-        for (BixiStation s : stations) {
-            System.out.println(s);
-            count++;
-        }
-        System.out.println("Total results: " + count);
+        Iterable<BixiStation> stations = compute(() -> controller.getTopStations(k, startDate, endDate));
+        render(() -> {
+            int count = 0;
+            for (BixiStation s : stations) {
+                System.out.println(s);
+                count++;
+            }
+            System.out.println("Total results: " + count);
+        });
     }
 
     private void handleReq7(Scanner scanner) {
         System.out.print("Month number (1..12): ");
         int month = Integer.parseInt(scanner.nextLine());
-        RushHour rushHour = controller.getRushHourOfMonth(month);
+        RushHour rushHour = compute(() -> controller.getRushHourOfMonth(month));
 
-        if (rushHour.getHour() == -1) {
-            System.out.println("No trips found for this month.");
-            return;
-        }
-
-        System.out.println("Rush hour: " + rushHour.getHour());
-        System.out.println("Average trips/day during rush hour: " + rushHour.getAverageTrips());
+        render(() -> {
+            if (rushHour.getHour() == -1) {
+                System.out.println("No trips found for this month.");
+                return;
+            }
+            System.out.println("Rush hour: " + rushHour.getHour());
+            System.out.println("Average trips/day during rush hour: " + rushHour.getAverageTrips());
+        });
     }
 
     private void handleReq8(Scanner scanner) {
@@ -176,9 +265,31 @@ public class BixiView {
         System.out.print("Top K stations: ");
         int k = Integer.parseInt(scanner.nextLine());
 
-        MonthComparison comparison = controller.compareMonths(month1, month2, k);
-        printMonthStats(comparison.getFirstMonth());
-        printMonthStats(comparison.getSecondMonth());
+        MonthComparison comparison = compute(() -> controller.compareMonths(month1, month2, k));
+        render(() -> {
+            printMonthStats(comparison.getFirstMonth());
+            printMonthStats(comparison.getSecondMonth());
+        });
+    }
+
+    private void handleDurations(Scanner scanner) {
+        System.out.print("By (station/month): ");
+        String by = scanner.nextLine().trim().toLowerCase();
+        System.out.print("month".equals(by) ? "Month (YYYY-MM): " : "Station name: ");
+        String key = scanner.nextLine();
+        DurationPercentiles percentiles = compute(() -> "month".equals(by)
+                ? controller.getDurationPercentilesByMonth(key)
+                : controller.getDurationPercentilesByStation(key));
+
+        render(() -> {
+            if (percentiles.getTripCount() == 0) {
+                System.out.println("No trips found.");
+                return;
+            }
+            System.out.println("Trips: " + percentiles.getTripCount());
+            System.out.printf("Duration p50 %.2f min, p95 %.2f min, p99 %.2f min%n",
+                    percentiles.getP50(), percentiles.getP95(), percentiles.getP99());
+        });
     }
 
     private void printMonthStats(MonthComparison.MonthStats stats) {
@@ -204,12 +315,50 @@ public class BixiView {
         }
     }
 
-    private void printTrips(Iterable<BixiTrip> trips) {
+    /**
+     * Writes trips as the iterable produces them: to the output file if one is chosen, otherwise
+     * to the console a page at a time, asking before each further page.
+     */
+    private void printTrips(Iterable<BixiTrip> trips, Scanner scanner) {
+        int total = trips instanceof TripSlice slice ? slice.size() : -1;
+        long startNs = System.nanoTime();
         int count = 0;
+        if (outputPath != null) {
+            try (ResultWriter file = ResultWriter.toFile(outputPath)) {
+                file.begin(outputFormat);
+                for (BixiTrip trip : trips) {
+                    file.write(trip);
+                    count++;
+                }
+                file.end();
+            } catch (RuntimeException ex) {
+                renderNs += System.nanoTime() - startNs;
+                System.out.println("Error while writing results: " + ex.getMessage());
+                return;
+            }
+            renderNs += System.nanoTime() - startNs;
+            System.out.println("Wrote " + count + " trips to " + outputPath);
+            return;
+        }
+
+        console.begin(ResultWriter.Format.TEXT);
         for (BixiTrip trip : trips) {
-            System.out.println(trip);
+            if (count > 0 && count % PAGE_SIZE == 0) {
+                console.flush();
+                renderNs += System.nanoTime() - startNs;
+                System.out.printf("-- %d of %s shown. Press Enter for more, or q to stop: ",
+                        count, total == -1 ? "?" : String.valueOf(total));
+                String answer = scanner.nextLine();
+                startNs = System.nanoTime();
+                if (answer.trim().equalsIgnoreCase("q")) {
+                    break;
+                }
+            }
+            console.write(trip);
             count++;
         }
-        System.out.println("Total results: " + count);
+        console.end();
+        renderNs += System.nanoTime() - startNs;
+        System.out.println("Total results: " + (total == -1 ? count : total));
     }
 }
@@ -0,0 +1,238 @@
+package ca.concordia.view;
+
+import ca.concordia.model.BixiTrip;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Renders query results as text, CSV or JSON into a byte channel through one reusable buffer.
+ * Each record is assembled in a reused {@link StringBuilder} and encoded to UTF-8 by hand, so
+ * writing a trip creates no strings; the buffer only reaches the channel when it fills up or is
+ * flushed.
+ */
+public final class ResultWriter implements Closeable {
+    public enum Format {
+        TEXT, CSV, JSON
+    }
+
+    public static final int BUFFER_BYTES = 1 << 20;
+    private static final String CSV_HEADER =
+            "start_station,start_arrondissement,end_station,end_arrondissement,start_time_ms,end_time_ms,duration_min";
+
+    private final WritableByteChannel channel;
+    private final boolean ownsChannel;
+    /** Flushed around every channel write, for a stream that shares or backs the channel; may be null. */
+    private final Flushable preceding;
+    private final ByteBuffer buffer;
+    private final StringBuilder record = new StringBuilder(256);
+    private Format format = Format.TEXT;
+    private long records;
+
+    public ResultWriter(WritableByteChannel channel, boolean ownsChannel, Flushable preceding, int bufferBytes) {
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.preceding = preceding;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(64, bufferBytes));
+    }
+
+    /**
+     * @return a writer to the current {@link System#out}, so redirection through {@link System#setOut}
+     * is honoured; the stream is flushed around each write so prompts and results stay in order
+     */
+    public static ResultWriter console() {
+        PrintStream out = System.out;
+        return new ResultWriter(Channels.newChannel(out), false, out, BUFFER_BYTES);
+    }
+
+    /**
+     * @return a writer that creates or replaces {@code path}
+     */
+    public static ResultWriter toFile(Path path) {
+        try {
+            return new ResultWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING), true, null, BUFFER_BYTES);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open output file: " + path, e);
+        }
+    }
+
+    /**
+     * Starts a result in {@code format}: writes the CSV header or opens the JSON array.
+     */
+    public void begin(Format format) {
+        this.format = format;
+        records = 0;
+        if (format == Format.CSV) {
+            writeLine(CSV_HEADER);
+        } else if (format == Format.JSON) {
+            writeLine("[");
+        }
+    }
+
+    public void write(BixiTrip trip) {
+        StringBuilder out = record;
+        out.setLength(0);
+        switch (format) {
+            case TEXT -> out.append("BixiTrip{start='").append(trip.getStartStationName())
+                    .append("', end='").append(trip.getEndStationName())
+                    .append("', startTimeMs=").append(trip.getStartTimeMs())
+                    .append(", endTimeMs=").append(trip.getEndTimeMs())
+                    .append(", durationMin=").append(trip.getDurationMinutes())
+                    .append('}');
+            case CSV -> {
+                appendCsv(out, trip.getStartStationName()).append(',');
+                appendCsv(out, trip.getStartStationArrondissement()).append(',');
+                appendCsv(out, trip.getEndStationName()).append(',');
+                appendCsv(out, trip.getEndStationArrondissement()).append(',');
+                out.append(trip.getStartTimeMs()).append(',')
+                        .append(trip.getEndTimeMs()).append(',')
+                        .append(trip.getDurationMinutes());
+            }
+            case JSON -> {
+                if (records > 0) {
+                    out.append(',');
+                }
+                out.append("{\"startStation\":");
+                appendJson(out, trip.getStartStationName()).append(",\"startArrondissement\":");
+                appendJson(out, trip.getStartStationArrondissement()).append(",\"endStation\":");
+                appendJson(out, trip.getEndStationName()).append(",\"endArrondissement\":");
+                appendJson(out, trip.getEndStationArrondissement())
+                        .append(",\"startTimeMs\":").append(trip.getStartTimeMs())
+                        .append(",\"endTimeMs\":").append(trip.getEndTimeMs())
+                        .append(",\"durationMin\":").append(trip.getDurationMinutes())
+                        .append('}');
+            }
+        }
+        records++;
+        writeLine(out);
+    }
+
+    /**
+     * Ends the current result: closes the JSON array, then flushes.
+     */
+    public void end() {
+        if (format == Format.JSON) {
+            writeLine("]");
+        }
+        flush();
+    }
+
+    public void writeLine(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (buffer.remaining() < 4) {
+                drain();
+            }
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18)).put((byte) (0x80 | codePoint >> 12 & 0x3F))
+                        .put((byte) (0x80 | codePoint >> 6 & 0x3F)).put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+            }
+        }
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) '\n');
+    }
+
+    public void flush() {
+        drain();
+    }
+
+    @Override
+    public void close() {
+        flush();
+        if (ownsChannel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to close results", e);
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            if (preceding != null) {
+                preceding.flush();
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+            if (preceding != null) {
+                preceding.flush();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write results", e);
+        }
+    }
+
+    private static StringBuilder appendCsv(StringBuilder out, String value) {
+        if (value == null) {
+            return out;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return out.append(value);
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        return out.append('"');
+    }
+
+    static StringBuilder appendJson(StringBuilder out, String value) {
+        if (value == null) {
+            return out.append("null");
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append("\\u00");
+                        out.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        return out.append('"');
+    }
+}
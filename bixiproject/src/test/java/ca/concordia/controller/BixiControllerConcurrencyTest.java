@@ -0,0 +1,167 @@
+package ca.concordia.controller;
+
+import ca.concordia.model.BixiTrip;
+import ca.concordia.model.FileLoadReport;
+import ca.concordia.util.TripCsvGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class BixiControllerConcurrencyTest {
+    private static final int ROWS = 2000;
+    private static final long WAIT_MS = 15_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void pinnedViewsStayConsistentWhileFilesAreAppended() throws Exception {
+        BixiController controller = new BixiController();
+        controller.loadFile(generate("base.csv", 1).toString());
+
+        try (Readers readers = new Readers(controller)) {
+            for (int seed = 2; seed <= 6; seed++) {
+                controller.appendFile(generate("more-" + seed + ".csv", seed).toString());
+            }
+            readers.check();
+        }
+        assertEquals(6 * ROWS, controller.getTotalTripsLoaded());
+        assertEquals(6 * ROWS, count(controller.getTripsByDuration(-1)));
+    }
+
+    @Test
+    void tailAppendsNewLinesAndReplacesTruncatedFile() throws Exception {
+        List<String> lines = Files.readAllLines(generate("source.csv", 7), StandardCharsets.UTF_8);
+        String header = lines.get(0);
+        Path followed = dir.resolve("followed.csv");
+        Files.write(followed, lines.subList(0, ROWS / 2 + 1), StandardCharsets.UTF_8);
+
+        BixiController controller = new BixiController();
+        try (Readers readers = new Readers(controller)) {
+            controller.tailFile(followed.toString());
+            awaitTrips(ROWS / 2, controller::getTotalTripsLoaded);
+
+            Files.write(followed, lines.subList(ROWS / 2 + 1, lines.size()), StandardCharsets.UTF_8,
+                    StandardOpenOption.APPEND);
+            awaitTrips(ROWS, controller::getTotalTripsLoaded);
+
+            List<String> shorter = lines.subList(1, 101);
+            Files.write(followed, List.of(header), StandardCharsets.UTF_8);
+            Files.write(followed, shorter, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            awaitTrips(shorter.size(), controller::getTotalTripsLoaded);
+            readers.check();
+        } finally {
+            controller.stopTail();
+        }
+        assertEquals(100, count(controller.getTripsByDuration(-1)));
+        assertEquals(1, count(controller.getLoadReports()));
+    }
+
+    @Test
+    void unloadingTheTailedFileStopsFollowingIt() throws Exception {
+        Path followed = generate("followed.csv", 8);
+        BixiController controller = new BixiController();
+        controller.tailFile(followed.toString());
+        awaitTrips(ROWS, controller::getTotalTripsLoaded);
+
+        int tag = controller.getLoadReports().iterator().next().getTag();
+        controller.unloadFile(tag);
+        Files.write(followed, Files.readAllLines(generate("extra.csv", 9)).subList(1, 11), StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+        Thread.sleep(1500);
+        assertEquals(0, controller.getTotalTripsLoaded());
+    }
+
+    private Path generate(String name, long seed) throws IOException {
+        Path file = dir.resolve(name);
+        new TripCsvGenerator(seed).writeFile(file, ROWS);
+        return file;
+    }
+
+    private static void awaitTrips(int expected, IntSupplier trips) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (trips.getAsInt() != expected) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Expected " + expected + " trips, have " + trips.getAsInt());
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private static int count(Iterable<?> items) {
+        int n = 0;
+        for (Object ignored : items) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Queries pinned views on background threads and checks that every view agrees with itself
+     * and that versions never go backwards.
+     */
+    private static final class Readers implements AutoCloseable {
+        private final AtomicBoolean done = new AtomicBoolean();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final Thread[] threads = new Thread[3];
+
+        Readers(BixiController controller) {
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread(() -> {
+                    long lastVersion = -1;
+                    try {
+                        while (!done.get()) {
+                            BixiController view = controller.pin();
+                            long version = view.getDatasetVersion();
+                            assertTrue(version >= lastVersion, "version went back from " + lastVersion);
+                            lastVersion = version;
+                            int rows = 0;
+                            for (FileLoadReport report : view.getLoadReports()) {
+                                rows += report.getRows();
+                            }
+                            int total = view.getTotalTripsLoaded();
+                            assertEquals(rows, total);
+                            int found = 0;
+                            for (BixiTrip ignored : view.getTripsByDuration(-1)) {
+                                found++;
+                            }
+                            assertEquals(total, found);
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }, "reader-" + i);
+                threads[i].start();
+            }
+        }
+
+        void check() throws InterruptedException {
+            close();
+            Throwable t = failure.get();
+            if (t != null) {
+                throw new AssertionError("Reader failed", t);
+            }
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            done.set(true);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ca.concordia.util;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelAggregatorTest {
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void smallThresholdsSplitDownToSingleElements() {
+        for (int threshold = 0; threshold <= 4; threshold++) {
+            ParallelAggregator aggregator = new ParallelAggregator(pool, threshold);
+            for (int length = 0; length <= 40; length++) {
+                long[] sum = aggregator.aggregate(0, length, () -> new long[1],
+                        (acc, from, to) -> {
+                            for (int i = from; i < to; i++) {
+                                acc[0] += i;
+                            }
+                        },
+                        (left, right) -> {
+                            left[0] += right[0];
+                            return left;
+                        });
+                assertEquals((long) length * (length - 1) / 2, sum[0], "threshold " + threshold + ", length " + length);
+            }
+        }
+    }
+
+    @Test
+    void mergesPiecesInRangeOrder() {
+        ParallelAggregator aggregator = new ParallelAggregator(pool, 1);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 3; i < 103; i++) {
+            expected.append(i).append(',');
+        }
+        StringBuilder joined = aggregator.aggregate(3, 103, StringBuilder::new,
+                (acc, from, to) -> {
+                    for (int i = from; i < to; i++) {
+                        acc.append(i).append(',');
+                    }
+                },
+                StringBuilder::append);
+        assertEquals(expected.toString(), joined.toString());
+    }
+
+    @Test
+    void sumAddsElementWise() {
+        assertArrayEquals(new int[]{5, 7, 9}, ParallelAggregator.sum(new int[]{1, 2, 3}, new int[]{4, 5, 6}));
+    }
+}
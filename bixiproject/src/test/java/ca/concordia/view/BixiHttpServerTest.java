@@ -0,0 +1,115 @@
+package ca.concordia.view;
+
+import ca.concordia.controller.BixiController;
+import ca.concordia.util.TripCsvGenerator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BixiHttpServerTest {
+    private static final int ROWS = 1000;
+
+    @TempDir
+    static Path dir;
+
+    private static BixiController controller;
+    private static BixiHttpServer server;
+    private static HttpClient client;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        Path file = dir.resolve("trips.csv");
+        new TripCsvGenerator(TripCsvGenerator.DEFAULT_SEED).writeFile(file, ROWS);
+        controller = new BixiController();
+        controller.loadFile(file.toString());
+        server = new BixiHttpServer(controller, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2, 4);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void listensOnTheChosenPort() {
+        assertTrue(server.getPort() > 0);
+    }
+
+    @Test
+    void statsDescribeTheLoadedTrips() throws Exception {
+        HttpResponse<String> response = get("/stats");
+        assertEquals(200, response.statusCode());
+        assertEquals("{\"version\":" + controller.getDatasetVersion() + ",\"trips\":" + ROWS
+                + ",\"stations\":" + controller.getUniqueStationsLoaded() + "}", response.body());
+    }
+
+    @Test
+    void tripListsArePagedWithTheirTotal() throws Exception {
+        HttpResponse<String> page = get("/trips/duration?min=-1&offset=10&limit=5");
+        assertEquals(200, page.statusCode());
+        assertEquals(String.valueOf(ROWS), page.headers().firstValue("X-Total-Count").orElse(null));
+        assertEquals(5, occurrences(page.body(), "\"startStation\":"));
+
+        HttpResponse<String> past = get("/trips/duration?min=-1&offset=" + ROWS);
+        assertEquals(200, past.statusCode());
+        assertEquals(0, occurrences(past.body(), "\"startStation\":"));
+    }
+
+    @Test
+    void badParametersAreRejected() throws Exception {
+        assertError(400, get("/trips/duration?min=abc"));
+        assertError(400, get("/trips/duration"));
+        assertError(400, get("/trips/duration?min=1&limit=-1"));
+    }
+
+    @Test
+    void unknownPathsAreNotFound() throws Exception {
+        assertError(404, get("/nothing-here"));
+    }
+
+    @Test
+    void onlyGetIsAllowed() throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/stats"))
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+        assertError(405, response);
+        assertEquals("GET", response.headers().firstValue("Allow").orElse(null));
+    }
+
+    private static HttpResponse<String> get(String pathAndQuery) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri(pathAndQuery)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static URI uri(String pathAndQuery) {
+        return URI.create("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort()
+                + pathAndQuery);
+    }
+
+    private static void assertError(int status, HttpResponse<String> response) {
+        assertEquals(status, response.statusCode());
+        assertTrue(response.body().startsWith("{\"error\":"), response.body());
+    }
+
+    private static int occurrences(String text, String part) {
+        int count = 0;
+        for (int at = text.indexOf(part); at != -1; at = text.indexOf(part, at + part.length())) {
+            count++;
+        }
+        return count;
+    }
+}